@@ -1,45 +1,126 @@
-import strategy.KMP;
+import metrics.Metrics;
+import search.MappedLineScanner;
+import search.Match;
+import search.ParallelFileSearch;
+import search.RecursiveSearch;
 import strategy.LineMatcher;
+import strategy.MatcherCache;
+import strategy.MultiPatternMatcher;
+import strategy.QueryPlanner;
 import strategy.Uhlmann;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class SimplifiedEgrep {
 
     private boolean debugMode;
     private String algoType;
     private LineMatcher matcher;
+    private boolean parallel;
+
+    private static final MatcherCache MATCHERS = new MatcherCache();
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final Set<String> OPTIONS = Set.of("-p", "-r", "-e", "-a", "-c", "-l", "-q", "-debug");
 
     public SimplifiedEgrep(String regex, Boolean debugMode, String algoType) throws Exception {
         this.debugMode = debugMode;
         this.algoType = algoType;
-        if (algoType.equalsIgnoreCase("default")) {
-            matcher = new Uhlmann(regex);
-            ((Uhlmann)matcher).buildAutomaton();
-        } else if (algoType.equalsIgnoreCase("kmp")) {
-            if (!regex.contains("|") && !regex.contains("*") && !regex.contains("(") && !regex.contains(")") && !regex.contains(".")) {
-                matcher = new KMP(regex);
-            } else {
-                matcher = new Uhlmann(regex);
-                ((Uhlmann)matcher).buildAutomaton();
-            }
-        } else {
-            throw new Exception("Invalid algorithm type: " + algoType);
+        if (debugMode && algoType.equalsIgnoreCase("default")) {
+            System.out.println(QueryPlanner.plan(regex).explain());
+        }
+        // the matcher is compiled once per regex and algorithm type, and reused from the cache after that
+        this.matcher = MATCHERS.get(regex, algoType);
+        if (debugMode) {
+            matcher.debug();
+        }
+    }
+
+    // Searches for several patterns in one scan, each output line telling which pattern ids it matches
+    public SimplifiedEgrep(List<String> regexes, Boolean debugMode) throws Exception {
+        this.debugMode = debugMode;
+        this.algoType = "multi";
+        this.matcher = new MultiPatternMatcher(regexes);
+        if (debugMode) {
+            matcher.debug();
         }
+    }
+
+    // Searches with a matcher built by the caller
+    public SimplifiedEgrep(LineMatcher matcher, Boolean debugMode) throws Exception {
+        this.debugMode = debugMode;
+        this.algoType = "custom";
+        this.matcher = matcher;
         if (debugMode) {
             matcher.debug();
         }
     }
 
     public static void main(String[] args) {
-//        if (args.length < 2) {
-//            System.err.println("Usage: java sim <regex> <filePath> [algoType] <debugMode>");
-//            return;
-//        }
+        int status = run(args);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    // Exit status: 0 when the search ran (-q: when something matched), 1 when -q found nothing, 2 on any error,
+    // reported as one line on standard error
+    static int run(String[] args) {
+        // Leading options: -p splits the file into chunks searched in parallel, -r searches a directory tree,
+        // -e <regex> (repeatable) searches for all the given patterns in one scan and replaces the regex argument,
+        // -a <file> maps the DFA saved in file instead of building it, and saves it there when the file has none,
+        // -c prints the number of matching lines, -l the names of the files with a match, -q nothing at all and
+        // exits with status 0 when something matched, 1 otherwise; -l and -q stop reading a file at its first match.
+        // -debug turns on debug mode like a trailing true, and explains which engine the planner picked
+        boolean parallel = false;
+        boolean recursive = false;
+        boolean debug = false;
+        char mode = 'n';   // n: print the lines, c, l or q
+        List<String> patterns = new ArrayList<>();
+        String automatonFile = null;
+        int first = 0;
+        while (first < args.length && OPTIONS.contains(args[first])) {
+            if ((args[first].equals("-e") || args[first].equals("-a")) && first + 1 == args.length) {
+                System.err.println("Error: missing argument after " + args[first]);
+                return 2;
+            }
+            switch (args[first]) {
+                case "-p" -> parallel = true;
+                case "-r" -> recursive = true;
+                case "-e" -> patterns.add(args[++first]);
+                case "-a" -> automatonFile = args[++first];
+                case "-c", "-l", "-q" -> mode = args[first].charAt(1);
+                case "-debug" -> debug = true;
+            }
+            first++;
+        }
+        args = Arrays.copyOfRange(args, first, args.length);
+        if (!patterns.isEmpty()) {
+            // the positional arguments start at the file, keep their usual positions
+            String[] shifted = new String[args.length + 1];
+            System.arraycopy(args, 0, shifted, 1, args.length);
+            args = shifted;
+        }
+        if (args.length < 2) {
+            System.err.println("Usage: SimplifiedEgrep [-p] [-r] [-c|-l|-q] [-debug] [-a <file>] <regex> <filePath> "
+                    + "[algoType] [debugMode]");
+            return 2;
+        }
 
 //        String regex = "S(a|g|r)*on";
         String regex = args[0];
@@ -53,43 +134,202 @@ public class SimplifiedEgrep {
         // Determine the debug mode, based on the position
         String debugMode = (args.length == 3 && (args[2].equalsIgnoreCase("true") || args[2].equalsIgnoreCase("false")))
                 ? args[2]
-                : (args.length == 4 ? args[3] : "false");
+                : (args.length == 4 ? args[3] : String.valueOf(debug));
 
         try {
             // Initialize SimplifiedEgrep with regex and debug mode
-            SimplifiedEgrep egrep = new SimplifiedEgrep(regex, Boolean.parseBoolean(debugMode), algoType);
+            SimplifiedEgrep egrep;
+            if (!patterns.isEmpty()) {
+                egrep = new SimplifiedEgrep(patterns, Boolean.parseBoolean(debugMode));
+            } else if (automatonFile != null) {
+                egrep = new SimplifiedEgrep(Uhlmann.loadOrBuild(regex, Path.of(automatonFile)), Boolean.parseBoolean(debugMode));
+            } else {
+                egrep = new SimplifiedEgrep(regex, Boolean.parseBoolean(debugMode), algoType);
+            }
+            egrep.setParallel(parallel);
 
-            // Search file and print results
-            List<String> matchingLines = egrep.searchFile(filePath);
+            if (mode == 'c') {
+                if (recursive) {
+                    egrep.countTree(filePath, (file, count) -> System.out.println(file + ":" + count));
+                } else {
+                    System.out.println(egrep.countMatches(filePath));
+                }
+                return 0;
+            }
+            if (mode == 'l' || mode == 'q') {
+                boolean listFiles = mode == 'l';
+                boolean[] found = new boolean[1];
+                if (recursive) {
+                    egrep.filesWithMatches(filePath, file -> {
+                        found[0] = true;
+                        if (listFiles) {
+                            System.out.println(file);
+                        }
+                    });
+                } else if (egrep.hasMatch(filePath)) {
+                    found[0] = true;
+                    if (listFiles) {
+                        System.out.println(filePath);
+                    }
+                }
+                return mode == 'q' && !found[0] ? 1 : 0;
+            }
 
-            if (matchingLines.isEmpty()) {
-                System.out.println("No matches found.");
-            } else {
-                System.out.println("Matching lines:");
-                for (String line : matchingLines) {
-                    System.out.println(line);
+            // Search and print results as they are found, through one large buffer
+            PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), OUTPUT_BUFFER_SIZE),
+                    false, StandardCharsets.UTF_8);
+            if (recursive) {
+                egrep.searchTree(filePath, out);
+                out.flush();
+                return 0;
+            }
+
+            long matches = egrep.searchFile(filePath, new Consumer<>() {
+                private boolean first = true;
+
+                @Override
+                public void accept(String line) {
+                    if (first) {
+                        out.println("Matching lines:");
+                        first = false;
+                    }
+                    out.println(line);
                 }
+            });
+            if (matches == 0) {
+                out.println("No matches found.");
             }
+            out.flush();
+            return 0;
         } catch (Exception e) {
-            System.err.println("Error: " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("Error: " + message(e));
+            return 2;
+        } finally {
+            if (Boolean.parseBoolean(debugMode)) {
+                System.out.println(Metrics.snapshot());
+            }
         }
     }
 
-    public List<String> searchFile(String filePath) throws IOException {
-        List<String> matchingLines = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            int lineNumber = 0;
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                if (matcher.matchLine(line, debugMode)) {
-                    matchingLines.add("Line " + lineNumber + ": " + line);
-                }
+    // The cause of an exception the search wrapped to get it out of a callback, named by its message
+    private static String message(Throwable e) {
+        while ((e instanceof UncheckedIOException || e.getClass() == RuntimeException.class) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        if (e instanceof NoSuchFileException) {
+            return e.getMessage() + ": no such file";
+        }
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+
+    public static MatcherCache matcherCache() {
+        return MATCHERS;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    // Searches every file below rootPath concurrently and prints "file: Line N: text" for each match to out,
+    // the lines of a file together
+    public void searchTree(String rootPath, PrintStream out) throws IOException {
+        new RecursiveSearch(matcher).search(Path.of(rootPath), out,
+                (file, lineNumber, line) -> file + ": " + format(lineNumber, line));
+    }
+
+    // "Line N: text", with the ids of the matching patterns after N when searching for several patterns
+    private String format(long lineNumber, String line) {
+        if (matcher instanceof MultiPatternMatcher multi) {
+            return "Line " + lineNumber + " " + multi.matchingPatterns(line) + ": " + line;
+        }
+        return "Line " + lineNumber + ": " + line;
+    }
+
+    // Number of matching lines; nothing is decoded or kept, and no line number is worked out
+    public long countMatches(String filePath) throws IOException {
+        try {
+            if (parallel) {
+                return new ParallelFileSearch(matcher).count(Path.of(filePath));
+            }
+            try (MappedLineScanner scanner = new MappedLineScanner(Path.of(filePath), matcher)) {
+                return count(scanner);
             }
+        } catch (IOException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+    }
+
+    // Stops reading the file at its first matching line
+    public boolean hasMatch(String filePath) throws IOException {
+        try (MappedLineScanner scanner = new MappedLineScanner(Path.of(filePath), matcher)) {
+            scanner.skipLineNumbers();
+            return scanner.nextMatch();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Number of matching lines of every file below rootPath
+    public void countTree(String rootPath, BiConsumer<Path, Long> output) throws IOException {
+        new RecursiveSearch(matcher).forEachFile(Path.of(rootPath), SimplifiedEgrep::count, output);
+    }
+
+    // Every file below rootPath with at least one match, each file being read up to its first match only
+    public void filesWithMatches(String rootPath, Consumer<Path> output) throws IOException {
+        new RecursiveSearch(matcher).forEachFile(Path.of(rootPath), scanner -> {
+            scanner.skipLineNumbers();
+            return scanner.nextMatch() ? Boolean.TRUE : null;
+        }, (file, found) -> output.accept(file));
+    }
+
+    private static long count(MappedLineScanner scanner) throws Exception {
+        scanner.skipLineNumbers();
+        long count = 0;
+        while (scanner.nextMatch()) {
+            count++;
+        }
+        return count;
+    }
+
+    // Streams the matches of a file as they are found, in file order; the stream holds the file open until closed.
+    // The matcher runs over the mapped bytes, a line is only decoded once it matches.
+    public Stream<Match> matches(String filePath) throws IOException {
+        Stream<Match> matches = parallel
+                ? new ParallelFileSearch(matcher).stream(Path.of(filePath))
+                : MappedLineScanner.stream(Path.of(filePath), matcher);
+        if (debugMode) {
+            matches = matches.peek(match -> {
+                try {
+                    matcher.matchLine(match.line(), true);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+        return matches;
+    }
+
+    // Formatted lines written to output one at a time, without collecting them; returns the number of matches
+    public long searchFile(String filePath, Consumer<String> output) throws IOException {
+        long count = 0;
+        try (Stream<Match> matches = matches(filePath)) {
+            Iterator<Match> iterator = matches.iterator();
+            while (iterator.hasNext()) {
+                Match match = iterator.next();
+                output.accept(format(match.lineNumber(), match.line()));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public List<String> searchFile(String filePath) throws IOException {
+        List<String> matchingLines = new ArrayList<>();
+        searchFile(filePath, matchingLines::add);
         return matchingLines;
     }
-}
\ No newline at end of file
+}
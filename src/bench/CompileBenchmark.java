@@ -0,0 +1,89 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import regex.Automaton;
+import regex.IntDFA;
+import regex.IntNFA;
+import regex.RegEx;
+import regex.RegExTree;
+
+import java.util.concurrent.TimeUnit;
+
+// Every phase of the DFA pipeline on its own: each benchmark starts from the output of the previous phase,
+// built once per trial, so a phase is timed without the ones before it
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompileBenchmark {
+
+    @Param({"literal", "alternation", "star", "wildcard"})
+    public String shape;
+
+    private String regex;
+    private RegExTree tree;
+    private IntNFA nfa;
+    private IntDFA dfa;
+    private IntNFA positionAutomaton;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        regex = Shapes.regex(shape);
+        tree = RegEx.parse(regex, false);
+        nfa = IntNFA.fromRegexTree(tree);
+        dfa = IntDFA.determinize(nfa, true);
+        positionAutomaton = IntNFA.positionAutomaton(tree);
+    }
+
+    @Benchmark
+    public RegExTree parse() throws Exception {
+        return RegEx.parse(regex, false);
+    }
+
+    @Benchmark
+    public Automaton buildFromRegexTree() throws Exception {
+        Automaton automaton = new Automaton();
+        automaton.buildFromRegexTree(tree);
+        return automaton;
+    }
+
+    // the same Thompson NFA on int arrays, to compare with buildFromRegexTree under -prof gc
+    @Benchmark
+    public IntNFA buildIntNFA() throws Exception {
+        return IntNFA.fromRegexTree(tree);
+    }
+
+    @Benchmark
+    public IntDFA determinize() {
+        return IntDFA.determinize(nfa, true);
+    }
+
+    // the epsilon-free Glushkov NFA that Uhlmann determinizes
+    @Benchmark
+    public IntNFA buildPositionAutomaton() throws Exception {
+        return IntNFA.positionAutomaton(tree);
+    }
+
+    @Benchmark
+    public IntDFA determinizePositionAutomaton() {
+        return IntDFA.determinize(positionAutomaton, true);
+    }
+
+    @Benchmark
+    public IntDFA minimizeDFA() {
+        return dfa.minimize();
+    }
+}
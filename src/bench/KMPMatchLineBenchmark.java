@@ -0,0 +1,59 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import strategy.KMP;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// KMP.matchLine over every line of a book, as MatchLineBenchmark does for Uhlmann. KMP only takes literals, so
+// only the literal shape is a parameter; its scores compare with uhlmannMatchLine on the same shape and book.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KMPMatchLineBenchmark {
+
+    @Param({"literal"})
+    public String shape;
+
+    @Param({"pg11.txt", "56667-0.txt", "pg1259.txt"})
+    public String book;
+
+    private List<String> lines;
+    private KMP kmp;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        lines = Files.readAllLines(Path.of(Shapes.TESTBED, book), StandardCharsets.UTF_8);
+        kmp = new KMP(Shapes.regex(shape));
+    }
+
+    // the count is returned so that the JIT cannot drop the calls
+    @Benchmark
+    public int kmpMatchLine() throws Exception {
+        int matches = 0;
+        for (String line : lines) {
+            if (kmp.matchLine(line, false)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
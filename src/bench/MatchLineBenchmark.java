@@ -0,0 +1,61 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import strategy.Uhlmann;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// matchLine over every line of a book, the lines being read once per trial; one op is one pass over the book.
+// KMP only takes literals, it is measured on the literal shape by KMPMatchLineBenchmark.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchLineBenchmark {
+
+    @Param({"literal", "alternation", "star", "wildcard"})
+    public String shape;
+
+    @Param({"pg11.txt", "56667-0.txt", "pg1259.txt"})
+    public String book;
+
+    private List<String> lines;
+    private Uhlmann uhlmann;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        lines = Files.readAllLines(Path.of(Shapes.TESTBED, book), StandardCharsets.UTF_8);
+        String regex = Shapes.regex(shape);
+        uhlmann = new Uhlmann(regex);
+        uhlmann.buildAutomaton();
+    }
+
+    // the count is returned so that the JIT cannot drop the calls
+    @Benchmark
+    public int uhlmannMatchLine() throws Exception {
+        int matches = 0;
+        for (String line : lines) {
+            if (uhlmann.matchLine(line, false)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
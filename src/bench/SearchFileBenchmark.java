@@ -0,0 +1,68 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import search.Match;
+import search.MappedLineScanner;
+import strategy.LineMatcher;
+import strategy.Matchers;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Whole-file search the way SimplifiedEgrep.searchFile runs it: the file is mapped, the matcher runs over its
+// bytes and the matching lines are decoded with their numbers. SimplifiedEgrep lives in the unnamed package
+// and cannot be imported, so the benchmark drives the same MappedLineScanner stream directly.
+// The matcher is the one the planner picks (default) or the DFA, to compare both on the same files.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchFileBenchmark {
+
+    @Param({"literal", "alternation", "star", "wildcard"})
+    public String shape;
+
+    @Param({"pg11.txt", "56667-0.txt", "pg1259.txt"})
+    public String book;
+
+    @Param({"default", "dfa"})
+    public String algoType;
+
+    private Path file;
+    private LineMatcher matcher;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        file = Path.of(Shapes.TESTBED, book);
+        matcher = Matchers.create(Shapes.regex(shape), algoType);
+    }
+
+    @Benchmark
+    public long searchFile(Blackhole blackhole) throws Exception {
+        long matches = 0;
+        try (Stream<Match> stream = MappedLineScanner.stream(file, matcher)) {
+            Iterator<Match> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                blackhole.consume(iterator.next());
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,25 @@
+package bench;
+
+import java.util.Map;
+
+// The regex shapes benchmarked, the patterns of tests.UlhmanPerformanceTests grouped by what drives their cost
+final class Shapes {
+    static final String TESTBED = "testbed";
+
+    private static final Map<String, String> PATTERNS = Map.of(
+            "literal", "Sargon",
+            "alternation", "the|and|of|to|in|is|that|for|it|as",
+            "star", "S(a|g|r)*on",
+            "wildcard", "a.*.*t");
+
+    private Shapes() {
+    }
+
+    static String regex(String shape) {
+        String regex = PATTERNS.get(shape);
+        if (regex == null) {
+            throw new IllegalArgumentException("Unknown regex shape: " + shape);
+        }
+        return regex;
+    }
+}
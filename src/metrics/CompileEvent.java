@@ -0,0 +1,24 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// One compilation phase of one pattern, timed by JFR from begin to commit
+@Name("regex.Compile")
+@Label("Regex Compilation Phase")
+@Category({"Regex", "Compilation"})
+@Description("Parse, NFA construction, subset construction, minimization or table compilation of a pattern")
+class CompileEvent extends Event {
+    @Label("Regex")
+    String regex;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("States")
+    @Description("States of the automaton the phase produced, 0 for the parse")
+    int states;
+}
@@ -0,0 +1,163 @@
+package metrics;
+
+import jdk.jfr.FlightRecorder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide counters for compilation and scanning, mirrored as JFR events.
+// Every compilation phase and every file scan is recorded here and, when a recording is on
+// (jcmd <pid> JFR.start), committed as a regex.Compile or regex.Scan event; regex.Metrics carries the totals
+// every 10 s. Counters are LongAdders, so scans on many threads do not contend on them.
+public final class Metrics {
+
+    public enum Phase {
+        PARSE, NFA, DETERMINIZE, MINIMIZE, COMPILE
+    }
+
+    private static final Map<Phase, LongAdder> PHASE_NANOS = new EnumMap<>(Phase.class);
+    private static final Map<Phase, AtomicLong> LAST_STATES = new EnumMap<>(Phase.class);
+    private static final LongAdder COMPILED = new LongAdder();
+    private static final LongAdder BYTES_SCANNED = new LongAdder();
+    private static final LongAdder LINES_SCANNED = new LongAdder();
+    private static final LongAdder MATCHES = new LongAdder();
+    private static final LongAdder SCAN_NANOS = new LongAdder();
+    private static final LongAdder CACHE_HITS = new LongAdder();
+    private static final LongAdder CACHE_MISSES = new LongAdder();
+
+    static {
+        for (Phase phase : Phase.values()) {
+            PHASE_NANOS.put(phase, new LongAdder());
+            LAST_STATES.put(phase, new AtomicLong());
+        }
+        FlightRecorder.addPeriodicEvent(MetricsEvent.class, () -> {
+            Snapshot snapshot = snapshot();
+            MetricsEvent event = new MetricsEvent();
+            event.compiled = snapshot.compiled();
+            event.compileNanos = snapshot.compileNanos();
+            event.bytesScanned = snapshot.bytesScanned();
+            event.linesScanned = snapshot.linesScanned();
+            event.matches = snapshot.matches();
+            event.bytesPerSecond = (long) snapshot.bytesPerSecond();
+            event.cacheHits = snapshot.cacheHits();
+            event.cacheMisses = snapshot.cacheMisses();
+            event.commit();
+        });
+    }
+
+    private Metrics() {
+    }
+
+    // Starts timing a compilation phase of regex; stop it once the phase is done
+    public static PhaseTimer start(Phase phase, String regex) {
+        return new PhaseTimer(phase, regex);
+    }
+
+    // Starts timing a scan of file; stop it when the scanner is closed
+    public static ScanTimer startScan(String file) {
+        return new ScanTimer(file);
+    }
+
+    public static void cacheLookup(boolean hit) {
+        (hit ? CACHE_HITS : CACHE_MISSES).increment();
+    }
+
+    public static final class PhaseTimer {
+        private final Phase phase;
+        private final CompileEvent event = new CompileEvent();
+        private final long start = System.nanoTime();
+
+        private PhaseTimer(Phase phase, String regex) {
+            this.phase = phase;
+            if (event.isEnabled()) {
+                event.regex = regex;
+                event.phase = phase.name();
+                event.begin();
+            }
+        }
+
+        // states: size of the automaton the phase produced, 0 when it produced none
+        public void stop(int states) {
+            PHASE_NANOS.get(phase).add(System.nanoTime() - start);
+            LAST_STATES.get(phase).set(states);
+            if (phase == Phase.COMPILE) {
+                COMPILED.increment();
+            }
+            if (event.isEnabled()) {
+                event.states = states;
+                event.commit();
+            }
+        }
+    }
+
+    public static final class ScanTimer {
+        private final ScanEvent event = new ScanEvent();
+        private final long start = System.nanoTime();
+
+        private ScanTimer(String file) {
+            if (event.isEnabled()) {
+                event.file = file;
+                event.begin();
+            }
+        }
+
+        // lines: 0 when the scan did not count them
+        public void stop(long bytes, long lines, long matches) {
+            SCAN_NANOS.add(System.nanoTime() - start);
+            BYTES_SCANNED.add(bytes);
+            LINES_SCANNED.add(lines);
+            MATCHES.add(matches);
+            if (event.isEnabled()) {
+                event.bytes = bytes;
+                event.lines = lines;
+                event.matches = matches;
+                event.commit();
+            }
+        }
+    }
+
+    public static Snapshot snapshot() {
+        Map<Phase, Long> phaseNanos = new EnumMap<>(Phase.class);
+        Map<Phase, Long> lastStates = new EnumMap<>(Phase.class);
+        long compileNanos = 0;
+        for (Phase phase : Phase.values()) {
+            long nanos = PHASE_NANOS.get(phase).sum();
+            phaseNanos.put(phase, nanos);
+            lastStates.put(phase, LAST_STATES.get(phase).get());
+            compileNanos += nanos;
+        }
+        return new Snapshot(COMPILED.sum(), compileNanos, phaseNanos, lastStates, BYTES_SCANNED.sum(),
+                LINES_SCANNED.sum(), MATCHES.sum(), SCAN_NANOS.sum(), CACHE_HITS.sum(), CACHE_MISSES.sum());
+    }
+
+    // Totals since startup; lastStates holds the automaton size from the latest run of each phase.
+    // Scan time adds up the time of every scanner, chunks searched in parallel included
+    public record Snapshot(long compiled, long compileNanos, Map<Phase, Long> phaseNanos, Map<Phase, Long> lastStates,
+                           long bytesScanned, long linesScanned, long matches, long scanNanos,
+                           long cacheHits, long cacheMisses) {
+
+        public double bytesPerSecond() {
+            return scanNanos == 0 ? 0 : bytesScanned * 1e9 / scanNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append("Compiled ").append(compiled).append(" patterns in ").append(compileNanos / 1_000_000.0).append(" ms");
+            for (Phase phase : Phase.values()) {
+                text.append("\n  ").append(phase.name().toLowerCase()).append(": ")
+                        .append(phaseNanos.get(phase) / 1_000_000.0).append(" ms");
+                if (lastStates.get(phase) > 0) {
+                    text.append(", ").append(lastStates.get(phase)).append(" states");
+                }
+            }
+            text.append("\nScanned ").append(bytesScanned).append(" bytes, ").append(linesScanned).append(" lines, ")
+                    .append(matches).append(" matching lines in ").append(scanNanos / 1_000_000.0).append(" ms (")
+                    .append(String.format("%.1f", bytesPerSecond() / (1 << 20))).append(" MB/s)");
+            text.append("\nMatcher cache: ").append(cacheHits).append(" hits, ").append(cacheMisses).append(" misses");
+            return text.toString();
+        }
+    }
+}
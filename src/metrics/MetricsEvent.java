@@ -0,0 +1,48 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Frequency;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.Timespan;
+
+// The running totals of Metrics, emitted periodically while a recording is on
+@Name("regex.Metrics")
+@Label("Regex Metrics")
+@Category({"Regex"})
+@Description("Totals since startup of compilation time, automaton sizes, scanned data and cache lookups")
+@Period("10 s")
+class MetricsEvent extends Event {
+    @Label("Patterns Compiled")
+    long compiled;
+
+    @Label("Compilation Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long compileNanos;
+
+    @Label("Bytes Scanned")
+    @DataAmount
+    long bytesScanned;
+
+    @Label("Lines Scanned")
+    long linesScanned;
+
+    @Label("Matching Lines")
+    long matches;
+
+    @Label("Scan Throughput")
+    @DataAmount
+    @Frequency
+    @Description("Bytes scanned per second of scanning")
+    long bytesPerSecond;
+
+    @Label("Cache Hits")
+    long cacheHits;
+
+    @Label("Cache Misses")
+    long cacheMisses;
+}
@@ -0,0 +1,29 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// One scan of a file or of a chunk of it, from the scanner being opened to its being closed
+@Name("regex.Scan")
+@Label("Regex File Scan")
+@Category({"Regex", "Search"})
+@Description("Bytes, lines and matching lines of one scanned file region")
+class ScanEvent extends Event {
+    @Label("File")
+    String file;
+
+    @Label("Bytes Scanned")
+    @DataAmount
+    long bytes;
+
+    @Label("Lines Scanned")
+    @Description("Lines read, 0 when line numbers were not needed")
+    long lines;
+
+    @Label("Matching Lines")
+    long matches;
+}
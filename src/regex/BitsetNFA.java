@@ -0,0 +1,127 @@
+package regex;
+
+// Primitive view of an NFA for subset construction: sets of NFA states are long[] bitsets, the epsilon closure
+// of every state is computed once, and moving a set on a symbol ORs precomputed closure masks.
+final class BitsetNFA {
+    final int stateCount;
+    final int words;              // longs per state set
+    final long[] startSet;        // epsilon closure of the start state
+    final long[] acceptSet;
+
+    // At NFA level every literal is its own class; everything else, only matched by DOT, is CharClasses.OTHER
+    final char[] classOf;         // character -> class
+    final int[] classSymbol;      // class -> literal symbol, DOT for OTHER
+    final int classCount;
+    final boolean asciiLiterals;  // no literal outside ASCII, and no line break
+
+    private final int[][] edgeSymbol;    // state -> labels of its symbol transitions
+    private final long[][][] edgeClosure; // state -> closures of the targets of its symbol transitions
+    private final long[][] sourcesOn;    // class -> states with a transition matching the class
+
+    BitsetNFA(IntNFA nfa) {
+        this.stateCount = nfa.stateCount;
+        this.words = (stateCount + 63) >>> 6;
+
+        int literalCount = 0;
+        for (int symbol : nfa.alphabet) {
+            if (symbol != Automaton.DOT_SYMBOL) {
+                literalCount++;
+            }
+        }
+        this.classOf = new char[Character.MAX_VALUE + 1];
+        this.classSymbol = new int[literalCount + 1];
+        classSymbol[CharClasses.OTHER] = Automaton.DOT_SYMBOL;
+        int next = 1;
+        boolean ascii = true;
+        for (int literal : nfa.alphabet) {    // sorted
+            if (literal == Automaton.DOT_SYMBOL) {
+                continue;
+            }
+            classOf[literal] = (char) next;
+            classSymbol[next++] = literal;
+            ascii &= literal < 0x80 && literal != '\n' && literal != '\r';
+        }
+        this.classCount = next;
+        this.asciiLiterals = ascii;
+
+        // without epsilon edges (Glushkov) the closure of a state is the state itself
+        long[][] closure = new long[stateCount][];
+        int[] stack = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            if (nfa.hasEpsilonEdges()) {
+                closure[state] = closureOf(nfa, state, stack);
+            } else {
+                closure[state] = new long[words];
+                closure[state][state >>> 6] = 1L << state;
+            }
+        }
+        this.startSet = closure[nfa.startState];
+        this.acceptSet = nfa.accepting.clone();
+
+        // Thompson states carry at most one symbol transition, Glushkov states one per position that can follow
+        this.edgeSymbol = new int[stateCount][];
+        this.edgeClosure = new long[stateCount][][];
+        this.sourcesOn = new long[classCount][words];
+        for (int state = 0; state < stateCount; state++) {
+            int first = nfa.symbolStart[state];
+            int edges = nfa.symbolStart[state + 1] - first;
+            edgeSymbol[state] = new int[edges];
+            edgeClosure[state] = new long[edges][];
+            for (int edge = 0; edge < edges; edge++) {
+                int symbol = nfa.symbolLabel[first + edge];
+                edgeSymbol[state][edge] = symbol;
+                edgeClosure[state][edge] = closure[nfa.symbolTarget[first + edge]];
+                if (symbol == Automaton.DOT_SYMBOL) {
+                    for (int characterClass = 0; characterClass < classCount; characterClass++) {
+                        sourcesOn[characterClass][state >>> 6] |= 1L << state;
+                    }
+                } else {
+                    sourcesOn[classOf[symbol]][state >>> 6] |= 1L << state;
+                }
+            }
+        }
+    }
+
+    private long[] closureOf(IntNFA nfa, int state, int[] stack) {
+        long[] set = new long[words];
+        int top = 0;
+        set[state >>> 6] |= 1L << state;
+        stack[top++] = state;
+        while (top > 0) {
+            int from = stack[--top];
+            for (int edge = nfa.epsilonStart[from]; edge < nfa.epsilonStart[from + 1]; edge++) {
+                int to = nfa.epsilonTarget[edge];
+                if ((set[to >>> 6] & (1L << to)) == 0) {
+                    set[to >>> 6] |= 1L << to;
+                    stack[top++] = to;
+                }
+            }
+        }
+        return set;
+    }
+
+    // ORs into result the closures reached from set on a class; returns false if nothing was reached
+    boolean move(long[] set, int characterClass, long[] result) {
+        long[] sources = sourcesOn[characterClass];
+        int symbol = classSymbol[characterClass];
+        boolean reached = false;
+        for (int word = 0; word < words; word++) {
+            long remaining = set[word] & sources[word];
+            while (remaining != 0) {
+                int state = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                int[] symbols = edgeSymbol[state];
+                for (int i = 0; i < symbols.length; i++) {
+                    if (symbols[i] == symbol || symbols[i] == Automaton.DOT_SYMBOL) {
+                        long[] mask = edgeClosure[state][i];
+                        for (int w = 0; w < words; w++) {
+                            result[w] |= mask[w];
+                        }
+                        reached = true;
+                    }
+                }
+            }
+        }
+        return reached;
+    }
+}
@@ -0,0 +1,93 @@
+package regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Splits the input alphabet into equivalence classes: two characters share a class when every state of the DFA
+// sends them to the same place. Class 0 always holds the characters that do not appear in the pattern,
+// which is also what DOT matches.
+public class CharClasses {
+    public static final int OTHER = 0;
+
+    final char[] classOf;      // character -> class, 64K entries
+    final int classCount;
+    final int[] representative; // class -> a class of the DFA it merges (OTHER for OTHER)
+
+    private CharClasses(char[] classOf, int classCount, int[] representative) {
+        this.classOf = classOf;
+        this.classCount = classCount;
+        this.representative = representative;
+    }
+
+    // Merges the classes of a DFA whose columns are equal: the column of a class is its target in every state
+    public static CharClasses fromDFA(IntDFA dfa) {
+        Map<ColumnKey, Integer> classByColumn = new HashMap<>();
+        List<Integer> representatives = new ArrayList<>();
+        int[] merged = new int[dfa.classCount];
+        for (int characterClass = 0; characterClass < dfa.classCount; characterClass++) {
+            // class OTHER comes first, so it stays class OTHER
+            ColumnKey key = new ColumnKey(column(dfa, characterClass));
+            Integer existing = classByColumn.get(key);
+            if (existing == null) {
+                existing = representatives.size();
+                classByColumn.put(key, existing);
+                representatives.add(characterClass);
+            }
+            merged[characterClass] = existing;
+        }
+
+        char[] classOf = new char[Character.MAX_VALUE + 1];
+        for (int characterClass = 1; characterClass < dfa.classCount; characterClass++) {
+            classOf[dfa.classSymbol[characterClass]] = (char) merged[characterClass];
+        }
+        int[] representative = new int[representatives.size()];
+        for (int i = 0; i < representative.length; i++) {
+            representative[i] = representatives.get(i);
+        }
+        return new CharClasses(classOf, representative.length, representative);
+    }
+
+    private static int[] column(IntDFA dfa, int characterClass) {
+        int[] column = new int[dfa.stateCount];
+        for (int state = 0; state < dfa.stateCount; state++) {
+            column[state] = dfa.delta[state * dfa.classCount + characterClass];
+        }
+        return column;
+    }
+
+    public int classOf(char c) {
+        return classOf[c];
+    }
+
+    public int classCount() {
+        return classCount;
+    }
+
+    // A class of the DFA standing for a merged class
+    public int representative(int characterClass) {
+        return representative[characterClass];
+    }
+
+    private static final class ColumnKey {
+        private final int[] targets;
+        private final int hash;
+
+        ColumnKey(int[] targets) {
+            this.targets = targets;
+            this.hash = Arrays.hashCode(targets);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ColumnKey && Arrays.equals(targets, ((ColumnKey) o).targets);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package regex;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Runtime form of a minimized DFA: a character class lookup, one flat int[] transition table indexed by
+// state and class, and an accepting-state bitmap.
+// Matching costs two array loads per character, with no boxing and no object graph.
+// A DFA can be saved to a file and loaded back by mapping it: the transition table then stays in the page cache,
+// shared by every JVM that loads the same file, and is read in place.
+public class CompiledDFA {
+    private static final int MAGIC = 0x45444641;    // "EDFA"
+    // 2: unanchored DFAs, version 1 files restart on a miss; 3: '\r' is a character on the byte path, version 2
+    // files restart on it
+    private static final int VERSION = 3;
+
+    public final int startState;
+    public final int stateCount;
+    final int stride;          // columns per state: the character classes, then LINE_BREAK and CONTINUATION
+    final char[] classOf;      // character -> class
+    final char[] byteClassOf;  // UTF-8 byte -> column, null when the pattern cannot run over raw bytes
+    final int[] table;         // table[state * stride + class] = next state, null when the table is mapped
+    final IntBuffer mappedTable; // the same table read in place from a saved file, null otherwise
+    final long[] accepting;    // bit s is set when state s is accepting
+
+    private CompiledDFA(int startState, int stateCount, int stride, char[] classOf, char[] byteClassOf, int[] table, long[] accepting) {
+        this(startState, stateCount, stride, classOf, byteClassOf, table, null, accepting);
+    }
+
+    private CompiledDFA(int startState, int stateCount, int stride, char[] classOf, char[] byteClassOf, int[] table,
+                        IntBuffer mappedTable, long[] accepting) {
+        this.startState = startState;
+        this.stateCount = stateCount;
+        this.stride = stride;
+        this.classOf = classOf;
+        this.byteClassOf = byteClassOf;
+        this.table = table;
+        this.mappedTable = mappedTable;
+        this.accepting = accepting;
+    }
+
+    // Flattens a DFA built by IntDFA.determinize / minimize, merging the classes whose columns are equal.
+    // An unanchored DFA has every transition; in an anchored one a missing transition goes back to the start state.
+    public static CompiledDFA fromDFA(IntDFA dfa) {
+        CharClasses classes = CharClasses.fromDFA(dfa);
+        int classCount = classes.classCount();
+        // two extra columns for byte scanning: a '\n' restarts, a UTF-8 continuation byte stays put
+        int lineBreak = classCount;
+        int continuation = classCount + 1;
+        int stride = classCount + 2;
+
+        int[] table = new int[dfa.stateCount * stride];
+        for (int state = 0; state < dfa.stateCount; state++) {
+            for (int characterClass = 0; characterClass < classCount; characterClass++) {
+                int next = dfa.delta[state * dfa.classCount + classes.representative(characterClass)];
+                table[state * stride + characterClass] = next == IntDFA.NONE ? dfa.startState : next;
+            }
+            table[state * stride + lineBreak] = dfa.startState;
+            table[state * stride + continuation] = state;
+        }
+        return new CompiledDFA(dfa.startState, dfa.stateCount, stride, classes.classOf,
+                byteClasses(classes.classOf, lineBreak, continuation), table, dfa.accepting.clone());
+    }
+
+    // Flattens a complete transition table delta[state * k + class] over the classes of classOf
+    static CompiledDFA fromTable(int startState, int stateCount, int[] delta, int k, char[] classOf, long[] accepting) {
+        int lineBreak = k;
+        int continuation = k + 1;
+        int stride = k + 2;
+        int[] table = new int[stateCount * stride];
+        for (int state = 0; state < stateCount; state++) {
+            System.arraycopy(delta, state * k, table, state * stride, k);
+            table[state * stride + lineBreak] = startState;
+            table[state * stride + continuation] = state;
+        }
+        return new CompiledDFA(startState, stateCount, stride, classOf,
+                byteClasses(classOf, lineBreak, continuation), table, accepting);
+    }
+
+    // Every character of a UTF-8 line costs exactly one transition: ASCII bytes use their class, a lead byte
+    // stands for a non-ASCII character (OTHER) and continuation bytes leave the state unchanged.
+    // That only holds when the pattern itself is ASCII and does not mention line breaks. Only '\n' ends a line; a
+    // '\r' goes through its class like any character, see endsLine for the one ending a CRLF line.
+    private static char[] byteClasses(char[] classOf, int lineBreak, int continuation) {
+        if (classOf['\n'] != CharClasses.OTHER || classOf['\r'] != CharClasses.OTHER) {
+            return null;
+        }
+        for (int c = 0x80; c < classOf.length; c++) {
+            if (classOf[c] != CharClasses.OTHER) {
+                return null;
+            }
+        }
+        char[] byteClassOf = new char[256];
+        for (int b = 0; b < 0x80; b++) {
+            byteClassOf[b] = classOf[b];
+        }
+        for (int b = 0x80; b < 0xC0; b++) {
+            byteClassOf[b] = (char) continuation;
+        }
+        byteClassOf['\n'] = (char) lineBreak;
+        return byteClassOf;
+    }
+
+    // True when buffer[i] is the '\r' of a CRLF line end, or a '\r' ending the region: it is part of the line
+    // terminator, which the lines given to matchLine do not hold, so a match that only ends on it does not count.
+    // Byte scanners check it when they reach an accepting state, their loops stay one table load per byte.
+    public static boolean endsLine(ByteBuffer buffer, int i, int to) {
+        return buffer.get(i) == '\r' && (i + 1 == to || buffer.get(i + 1) == '\n');
+    }
+
+    public boolean isAccepting(int state) {
+        return (accepting[state >>> 6] & (1L << state)) != 0;
+    }
+
+    // Returns the position of the character on which an accepting state is reached, or -1
+    public int find(CharSequence line) {
+        if (table == null) {
+            return findMapped(line);
+        }
+        final int[] table = this.table;
+        final char[] classOf = this.classOf;
+        final int stride = this.stride;
+        int state = startState;
+        for (int i = 0, n = line.length(); i < n; i++) {
+            state = table[state * stride + classOf[line.charAt(i)]];
+            if ((accepting[state >>> 6] & (1L << state)) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean supportsBytes() {
+        return byteClassOf != null;
+    }
+
+    // Runs over the UTF-8 lines in buffer[from, to), from being the start of a line, and returns the offset
+    // of the byte on which an accepting state is reached, or -1. A '\n' sends the DFA back to its start.
+    public int find(ByteBuffer buffer, int from, int to) {
+        if (table == null) {
+            return findMapped(buffer, from, to);
+        }
+        final int[] table = this.table;
+        final char[] byteClassOf = this.byteClassOf;
+        final int stride = this.stride;
+        int state = startState;
+        for (int i = from; i < to; i++) {
+            state = table[state * stride + byteClassOf[buffer.get(i) & 0xFF]];
+            if ((accepting[state >>> 6] & (1L << state)) != 0 && !endsLine(buffer, i, to)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Same loops as find, reading the mapped table
+    private int findMapped(CharSequence line) {
+        final IntBuffer table = this.mappedTable;
+        int state = startState;
+        for (int i = 0, n = line.length(); i < n; i++) {
+            state = table.get(state * stride + classOf[line.charAt(i)]);
+            if ((accepting[state >>> 6] & (1L << state)) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int findMapped(ByteBuffer buffer, int from, int to) {
+        final IntBuffer table = this.mappedTable;
+        int state = startState;
+        for (int i = from; i < to; i++) {
+            state = table.get(state * stride + byteClassOf[buffer.get(i) & 0xFF]);
+            if ((accepting[state >>> 6] & (1L << state)) != 0 && !endsLine(buffer, i, to)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Size of the transition table in bytes
+    public long tableBytes() {
+        return (long) (table != null ? table.length : mappedTable.capacity()) * Integer.BYTES;
+    }
+
+    public boolean isMapped() {
+        return table == null;
+    }
+
+    // Binary format, little endian, version 2:
+    //   int magic, int version, int startState, int stateCount, int stride,
+    //   int regex length, UTF-8 regex bytes, padded to 4 bytes,
+    //   int class entries, then (char character, char class) for every character not in class OTHER,
+    //   int 1 and 256 chars of byte classes, or int 0 when the DFA cannot run over bytes,
+    //   int accepting words, padded to 8 bytes, then the accepting longs,
+    //   stateCount * stride ints of transition table.
+    // The file is written next to its target and moved over it, so a reader never maps a half written file.
+    public void save(Path file, String regex) throws IOException {
+        byte[] regexBytes = regex.getBytes(StandardCharsets.UTF_8);
+        int classEntries = 0;
+        for (char characterClass : classOf) {
+            if (characterClass != CharClasses.OTHER) {
+                classEntries++;
+            }
+        }
+        int tableLength = stateCount * stride;
+        int position = align(24 + regexBytes.length, 4);
+        position += 4 + classEntries * 4;
+        position += 4 + (byteClassOf == null ? 0 : 256 * Character.BYTES);
+        int acceptingOffset = align(position + 4, 8);
+        int tableOffset = acceptingOffset + accepting.length * Long.BYTES;
+        ByteBuffer out = ByteBuffer.allocate(tableOffset + tableLength * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        out.putInt(MAGIC).putInt(VERSION).putInt(startState).putInt(stateCount).putInt(stride);
+        out.putInt(regexBytes.length).put(regexBytes);
+        out.position(align(out.position(), 4));
+        out.putInt(classEntries);
+        for (int c = 0; c < classOf.length; c++) {
+            if (classOf[c] != CharClasses.OTHER) {
+                out.putChar((char) c).putChar(classOf[c]);
+            }
+        }
+        out.putInt(byteClassOf == null ? 0 : 1);
+        if (byteClassOf != null) {
+            for (char column : byteClassOf) {
+                out.putChar(column);
+            }
+        }
+        out.position(align(out.position(), 4));
+        out.putInt(accepting.length);
+        out.position(acceptingOffset);
+        for (long word : accepting) {
+            out.putLong(word);
+        }
+        for (int i = 0; i < tableLength; i++) {
+            out.putInt(table != null ? table[i] : mappedTable.get(i));
+        }
+
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, out.array());
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // Maps a file written by save. Returns null when it was saved for another regex, and throws DFAFormatException
+    // when it is not a DFA file of this version or is truncated or inconsistent, so that a bad file fails here and
+    // not mid-scan: every table entry is checked to be a state, which reads the whole table once.
+    public static CompiledDFA load(Path file, String regex) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer in = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < 24 || in.getInt() != MAGIC) {
+            throw new DFAFormatException(file + " is not a saved DFA");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new DFAFormatException(file + " has DFA format version " + version + ", expected " + VERSION);
+        }
+        int startState = in.getInt();
+        int stateCount = in.getInt();
+        int stride = in.getInt();
+        if (stateCount <= 0 || stride <= 0 || startState < 0 || startState >= stateCount) {
+            throw new DFAFormatException(file + " is corrupt: start state " + startState + " of " + stateCount
+                    + " states, " + stride + " columns");
+        }
+        long tableBytes = (long) stateCount * stride * Integer.BYTES;
+        if (24 + tableBytes > in.limit()) {
+            throw new DFAFormatException(file + " is truncated: " + stateCount + " states of " + stride
+                    + " columns need " + tableBytes + " bytes of table, the file has " + in.limit() + " bytes");
+        }
+        try {
+            int regexLength = in.getInt();
+            if (regexLength < 0 || regexLength > in.remaining()) {
+                throw new DFAFormatException(file + " is corrupt: regex of " + regexLength + " bytes");
+            }
+            byte[] regexBytes = new byte[regexLength];
+            in.get(regexBytes);
+            if (!regex.equals(new String(regexBytes, StandardCharsets.UTF_8))) {
+                return null;
+            }
+            in.position(align(in.position(), 4));
+
+            char[] classOf = new char[Character.MAX_VALUE + 1];
+            for (int entries = in.getInt(); entries > 0; entries--) {
+                classOf[in.getChar()] = column(file, in.getChar(), stride);
+            }
+            char[] byteClassOf = null;
+            if (in.getInt() == 1) {
+                byteClassOf = new char[256];
+                for (int b = 0; b < byteClassOf.length; b++) {
+                    byteClassOf[b] = column(file, in.getChar(), stride);
+                }
+            }
+            in.position(align(in.position(), 4));
+            int acceptingWords = in.getInt();
+            if (acceptingWords != (stateCount + 63) >>> 6) {
+                throw new DFAFormatException(file + " is corrupt: " + acceptingWords + " accepting words for "
+                        + stateCount + " states");
+            }
+            long[] accepting = new long[acceptingWords];
+            in.position(align(in.position(), 8));
+            for (int i = 0; i < accepting.length; i++) {
+                accepting[i] = in.getLong();
+            }
+            if (in.remaining() < tableBytes) {
+                throw new DFAFormatException(file + " is truncated: " + tableBytes + " bytes of table expected, "
+                        + in.remaining() + " left");
+            }
+            IntBuffer table = in.slice(in.position(), (int) tableBytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            for (int i = 0, n = table.limit(); i < n; i++) {
+                int next = table.get(i);
+                if (next < 0 || next >= stateCount) {
+                    throw new DFAFormatException(file + " is corrupt: state " + i / stride + " goes to " + next
+                            + " on column " + i % stride + ", of " + stateCount + " states");
+                }
+            }
+            return new CompiledDFA(startState, stateCount, stride, classOf, byteClassOf, null, table, accepting);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // a section runs past the end of the file, or an alignment past its limit
+            throw new DFAFormatException(file + " is truncated", e);
+        }
+    }
+
+    private static char column(Path file, char column, int stride) throws IOException {
+        if (column >= stride) {
+            throw new DFAFormatException(file + " is corrupt: column " + (int) column + " of a table of " + stride
+                    + " columns");
+        }
+        return column;
+    }
+
+    private static int align(int position, int alignment) {
+        return (position + alignment - 1) & -alignment;
+    }
+
+    // Size of every array of the DFA in bytes
+    public long memoryBytes() {
+        return tableBytes() + (long) classOf.length * Character.BYTES
+                + (byteClassOf == null ? 0 : byteClassOf.length * Character.BYTES) + accepting.length * Long.BYTES;
+    }
+}
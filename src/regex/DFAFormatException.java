@@ -0,0 +1,17 @@
+package regex;
+
+import java.io.IOException;
+
+// A saved DFA file that cannot be used as it is: not a DFA file, another format version, truncated or inconsistent.
+// Unlike other IOExceptions, building the DFA again and saving it over the file fixes it.
+public class DFAFormatException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public DFAFormatException(String message) {
+        super(message);
+    }
+
+    public DFAFormatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,112 @@
+package regex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+// Glushkov position analysis of a RegExTree: every leaf is a position, and first / last / follow say which
+// positions can start a match, end it, and come right after a given position.
+public class Glushkov {
+    public final int[] symbols;       // position -> symbol, DOT for '.'
+    public final boolean nullable;    // the pattern matches the empty string
+    public final BitSet first;
+    public final BitSet last;
+    public final BitSet[] follow;
+
+    private Glushkov(int[] symbols, boolean nullable, BitSet first, BitSet last, BitSet[] follow) {
+        this.symbols = symbols;
+        this.nullable = nullable;
+        this.first = first;
+        this.last = last;
+        this.follow = follow;
+    }
+
+    public static Glushkov fromRegexTree(RegExTree tree) throws Exception {
+        List<Integer> symbols = new ArrayList<>();
+        collectPositions(tree, symbols);
+        BitSet[] follow = new BitSet[symbols.size()];
+        for (int i = 0; i < follow.length; i++) {
+            follow[i] = new BitSet();
+        }
+        Node root = analyse(tree, new int[1], follow);
+
+        int[] positions = new int[symbols.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = symbols.get(i);
+        }
+        return new Glushkov(positions, root.nullable, root.first, root.last, follow);
+    }
+
+    // Number of symbol occurrences in the tree, i.e. of positions
+    public static int positionCount(RegExTree tree) {
+        if (tree.subTrees.isEmpty()) {
+            return 1;
+        }
+        int count = 0;
+        for (RegExTree subTree : tree.subTrees) {
+            count += positionCount(subTree);
+        }
+        return count;
+    }
+
+    public int size() {
+        return symbols.length;
+    }
+
+    private static void collectPositions(RegExTree tree, List<Integer> symbols) {
+        if (tree.subTrees.isEmpty()) {
+            symbols.add(tree.root);
+            return;
+        }
+        for (RegExTree subTree : tree.subTrees) {
+            collectPositions(subTree, symbols);
+        }
+    }
+
+    // Positions are numbered left to right, in the same order as collectPositions
+    private static Node analyse(RegExTree tree, int[] nextPosition, BitSet[] follow) throws Exception {
+        if (tree.subTrees.isEmpty()) {
+            BitSet position = new BitSet();
+            position.set(nextPosition[0]++);
+            return new Node(false, position, (BitSet) position.clone());
+        }
+
+        if (tree.root == RegEx.CONCAT) {
+            Node left = analyse(tree.subTrees.get(0), nextPosition, follow);
+            Node right = analyse(tree.subTrees.get(1), nextPosition, follow);
+            for (int p = left.last.nextSetBit(0); p >= 0; p = left.last.nextSetBit(p + 1)) {
+                follow[p].or(right.first);
+            }
+            BitSet first = left.first;
+            if (left.nullable) {
+                first.or(right.first);
+            }
+            BitSet last = right.last;
+            if (right.nullable) {
+                last.or(left.last);
+            }
+            return new Node(left.nullable && right.nullable, first, last);
+        }
+
+        if (tree.root == RegEx.ALTERN) {
+            Node left = analyse(tree.subTrees.get(0), nextPosition, follow);
+            Node right = analyse(tree.subTrees.get(1), nextPosition, follow);
+            left.first.or(right.first);
+            left.last.or(right.last);
+            return new Node(left.nullable || right.nullable, left.first, left.last);
+        }
+
+        if (tree.root == RegEx.ETOILE) {
+            Node sub = analyse(tree.subTrees.get(0), nextPosition, follow);
+            for (int p = sub.last.nextSetBit(0); p >= 0; p = sub.last.nextSetBit(p + 1)) {
+                follow[p].or(sub.first);
+            }
+            return new Node(true, sub.first, sub.last);
+        }
+
+        throw new Exception("Unknown regex operator");
+    }
+
+    private record Node(boolean nullable, BitSet first, BitSet last) {
+    }
+}
@@ -0,0 +1,149 @@
+package regex;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Hopcroft's partition refinement, O(k n log n) for n states and k symbols, on primitive arrays only.
+// The DFA must be complete: delta[state * k + symbol] is the target of every state on every symbol.
+final class Hopcroft {
+
+    private Hopcroft() {
+    }
+
+    // Returns the block of every state: two states share a block iff they have the same label and are
+    // equivalent. States with different labels (accepting or not, or which patterns accept) never merge.
+    static int[] minimize(int[] delta, int n, int k, int[] label) {
+        // Inverse transitions in CSR form: the sources of (target, symbol) are
+        // inverseSources[inverseStart[target * k + symbol] .. inverseStart[target * k + symbol + 1])
+        int[] inverseStart = new int[n * k + 1];
+        for (int i = 0; i < n * k; i++) {
+            inverseStart[delta[i] * k + i % k + 1]++;
+        }
+        for (int i = 0; i < n * k; i++) {
+            inverseStart[i + 1] += inverseStart[i];
+        }
+        int[] inverseSources = new int[n * k];
+        int[] cursor = inverseStart.clone();
+        for (int state = 0; state < n; state++) {
+            for (int symbol = 0; symbol < k; symbol++) {
+                inverseSources[cursor[delta[state * k + symbol] * k + symbol]++] = state;
+            }
+        }
+
+        // Blocks are contiguous ranges of elements; the first (mid - first) elements of a block are marked
+        int[] elements = new int[n];
+        int[] location = new int[n];
+        int[] blockOf = new int[n];
+        int[] first = new int[n];
+        int[] mid = new int[n];
+        int[] end = new int[n];
+        int blockCount = initialPartition(n, label, elements, location, blockOf, first, mid, end);
+
+        boolean[] waiting = new boolean[n * k];
+        int[] worklist = new int[n * k];
+        int pending = 0;
+        int largest = 0;
+        for (int block = 1; block < blockCount; block++) {
+            if (end[block] - first[block] > end[largest] - first[largest]) {
+                largest = block;
+            }
+        }
+        for (int block = 0; block < blockCount; block++) {
+            if (block != largest) {
+                for (int symbol = 0; symbol < k; symbol++) {
+                    waiting[block * k + symbol] = true;
+                    worklist[pending++] = block * k + symbol;
+                }
+            }
+        }
+
+        int[] touched = new int[n];
+        int[] splitterStates = new int[n];
+        while (pending > 0) {
+            int splitter = worklist[--pending];
+            waiting[splitter] = false;
+            int splitterBlock = splitter / k;
+            int symbol = splitter % k;
+
+            // Mark every state that goes into the splitter on symbol. Marking moves states within their block,
+            // the splitter block included when it holds predecessors, so its states are copied out first
+            int splitterSize = end[splitterBlock] - first[splitterBlock];
+            System.arraycopy(elements, first[splitterBlock], splitterStates, 0, splitterSize);
+            int touchedCount = 0;
+            for (int i = 0; i < splitterSize; i++) {
+                int target = splitterStates[i];
+                for (int j = inverseStart[target * k + symbol]; j < inverseStart[target * k + symbol + 1]; j++) {
+                    int source = inverseSources[j];
+                    int block = blockOf[source];
+                    int position = location[source];
+                    if (position >= mid[block]) {
+                        int other = elements[mid[block]];
+                        elements[position] = other;
+                        location[other] = position;
+                        elements[mid[block]] = source;
+                        location[source] = mid[block];
+                        if (mid[block]++ == first[block]) {
+                            touched[touchedCount++] = block;
+                        }
+                    }
+                }
+            }
+
+            // Split the touched blocks; the smaller half becomes the new block and goes on the worklist
+            for (int t = 0; t < touchedCount; t++) {
+                int block = touched[t];
+                if (mid[block] == end[block]) {
+                    mid[block] = first[block];
+                    continue;
+                }
+                int newBlock = blockCount++;
+                if (mid[block] - first[block] <= end[block] - mid[block]) {
+                    first[newBlock] = first[block];
+                    end[newBlock] = mid[block];
+                    first[block] = mid[block];
+                } else {
+                    first[newBlock] = mid[block];
+                    end[newBlock] = end[block];
+                    end[block] = mid[block];
+                }
+                mid[block] = first[block];
+                mid[newBlock] = first[newBlock];
+                for (int i = first[newBlock]; i < end[newBlock]; i++) {
+                    blockOf[elements[i]] = newBlock;
+                }
+                for (int s = 0; s < k; s++) {
+                    if (!waiting[newBlock * k + s]) {
+                        waiting[newBlock * k + s] = true;
+                        worklist[pending++] = newBlock * k + s;
+                    }
+                }
+            }
+        }
+        return blockOf;
+    }
+
+    private static int initialPartition(int n, int[] label, int[] elements, int[] location, int[] blockOf,
+                                        int[] first, int[] mid, int[] end) {
+        Map<Integer, Integer> blockOfLabel = new HashMap<>();
+        int[] size = new int[n];
+        for (int state = 0; state < n; state++) {
+            int block = blockOfLabel.computeIfAbsent(label[state], l -> blockOfLabel.size());
+            blockOf[state] = block;
+            size[block]++;
+        }
+        int blockCount = blockOfLabel.size();
+        int offset = 0;
+        for (int block = 0; block < blockCount; block++) {
+            first[block] = offset;
+            mid[block] = offset;
+            end[block] = offset;
+            offset += size[block];
+        }
+        for (int state = 0; state < n; state++) {
+            int block = blockOf[state];
+            elements[end[block]] = state;
+            location[state] = end[block]++;
+        }
+        return blockCount;
+    }
+}
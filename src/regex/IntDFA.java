@@ -0,0 +1,178 @@
+package regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+// DFA on int arrays: delta[state * classCount + class] is the target of a state on a character class, or NONE.
+// The classes are those of the NFA it was determinized from (every literal its own class, CharClasses.OTHER for
+// the characters the pattern does not name), so a state costs one row of ints and a transition no object at all.
+// The object form of Automaton is only built from it to print it or draw it.
+public final class IntDFA {
+    public static final int NONE = -1;
+
+    public final int stateCount;
+    public final int startState;
+    final int classCount;
+    final char[] classOf;       // character -> class
+    final int[] classSymbol;    // class -> literal symbol, DOT for OTHER
+    final int[] delta;
+    final long[] accepting;
+
+    private IntDFA(int stateCount, int startState, int classCount, char[] classOf, int[] classSymbol, int[] delta,
+                   long[] accepting) {
+        this.stateCount = stateCount;
+        this.startState = startState;
+        this.classCount = classCount;
+        this.classOf = classOf;
+        this.classSymbol = classSymbol;
+        this.delta = delta;
+        this.accepting = accepting;
+    }
+
+    // Subset construction over bitsets: epsilon closures are computed once per NFA state and a move ORs their masks.
+    // Unanchored, the NFA gets an implicit .* loop in front: every move also holds the start set, so a match may
+    // begin on any character. The DFA then has a transition for every class in every state and finds every match,
+    // overlapping ones included, in one pass without going back to its start state. Anchored, a move that reaches
+    // no NFA state has no transition.
+    public static IntDFA determinize(IntNFA intNFA, boolean unanchored) {
+        return determinize(intNFA, unanchored, Integer.MAX_VALUE);
+    }
+
+    // Gives up and returns null as soon as more than maxStates states are discovered: the state count is only known
+    // once built, and a pattern of a few dozen positions can need billions of them
+    public static IntDFA determinize(IntNFA intNFA, boolean unanchored, int maxStates) {
+        BitsetNFA nfa = new BitsetNFA(intNFA);
+        int k = nfa.classCount;
+        HashMap<StateSet, Integer> stateMap = new HashMap<>(); // set of NFA states -> DFA state
+        List<StateSet> sets = new ArrayList<>();                // DFA state -> set of NFA states, in discovery order
+        StateSet startSet = new StateSet(nfa.startSet);
+        stateMap.put(startSet, 0);
+        sets.add(startSet);
+        int[] delta = new int[16 * k];
+        long[] accepting = new long[1];
+
+        long[] nextBits = new long[nfa.words];
+        for (int current = 0; current < sets.size(); current++) {
+            StateSet currentSet = sets.get(current);
+            if ((current + 1) * k > delta.length) {
+                delta = Arrays.copyOf(delta, delta.length * 2);
+            }
+            if (current >>> 6 >= accepting.length) {
+                accepting = Arrays.copyOf(accepting, accepting.length * 2);
+            }
+            if (currentSet.intersects(nfa.acceptSet)) {
+                accepting[current >>> 6] |= 1L << current;
+            }
+
+            // One move per character class; class OTHER stands for every character that is not in the alphabet
+            for (int characterClass = 0; characterClass < k; characterClass++) {
+                boolean reached = nfa.move(currentSet.bits, characterClass, nextBits);
+                if (unanchored) {
+                    for (int word = 0; word < nfa.words; word++) {
+                        nextBits[word] |= nfa.startSet[word];
+                    }
+                } else if (!reached) {
+                    delta[current * k + characterClass] = NONE;
+                    continue;
+                }
+                StateSet nextSet = new StateSet(nextBits);
+                Integer next = stateMap.get(nextSet);
+                if (next == null) {
+                    next = sets.size();
+                    if (next == maxStates) {
+                        return null;
+                    }
+                    stateMap.put(nextSet, next);
+                    sets.add(nextSet);
+                    nextBits = new long[nfa.words];
+                } else {
+                    Arrays.fill(nextBits, 0);
+                }
+                delta[current * k + characterClass] = next;
+            }
+        }
+
+        int n = sets.size();
+        return new IntDFA(n, 0, k, nfa.classOf, nfa.classSymbol, Arrays.copyOf(delta, n * k),
+                Arrays.copyOf(accepting, (n + 63) >>> 6));
+    }
+
+    // Hopcroft minimization. Missing transitions go to an extra dead state while refining; the block of the dead
+    // state is then dropped, unless the start state is in it, and transitions into it are missing again
+    public IntDFA minimize() {
+        int k = classCount;
+        int n = stateCount + 1;
+        int dead = stateCount;
+        int[] complete = new int[n * k];
+        int[] label = new int[n];
+        for (int state = 0; state < stateCount; state++) {
+            for (int characterClass = 0; characterClass < k; characterClass++) {
+                int next = delta[state * k + characterClass];
+                complete[state * k + characterClass] = next == NONE ? dead : next;
+            }
+            label[state] = isAccepting(state) ? 1 : 0;
+        }
+        Arrays.fill(complete, dead * k, n * k, dead);
+
+        int[] blockOf = Hopcroft.minimize(complete, n, k, label);
+
+        // one state per block, numbered in the order of their first state
+        int droppedBlock = blockOf[dead] == blockOf[startState] ? -1 : blockOf[dead];
+        int[] stateOfBlock = new int[n];
+        Arrays.fill(stateOfBlock, NONE);
+        int[] representative = new int[n];
+        int states = 0;
+        for (int state = 0; state < stateCount; state++) {
+            int block = blockOf[state];
+            if (block != droppedBlock && stateOfBlock[block] == NONE) {
+                stateOfBlock[block] = states;
+                representative[states++] = state;
+            }
+        }
+        int[] minimized = new int[states * k];
+        long[] minimizedAccepting = new long[(states + 63) >>> 6];
+        for (int state = 0; state < states; state++) {
+            int from = representative[state];
+            for (int characterClass = 0; characterClass < k; characterClass++) {
+                int next = complete[from * k + characterClass];
+                minimized[state * k + characterClass] = blockOf[next] == droppedBlock ? NONE : stateOfBlock[blockOf[next]];
+            }
+            if (isAccepting(from)) {
+                minimizedAccepting[state >>> 6] |= 1L << state;
+            }
+        }
+        return new IntDFA(states, stateOfBlock[blockOf[startState]], k, classOf, classSymbol, minimized,
+                minimizedAccepting);
+    }
+
+    public boolean isAccepting(int state) {
+        return (accepting[state >>> 6] & (1L << state)) != 0;
+    }
+
+    public List<Integer> acceptingStates() {
+        List<Integer> states = new ArrayList<>();
+        for (int state = 0; state < stateCount; state++) {
+            if (isAccepting(state)) {
+                states.add(state);
+            }
+        }
+        return states;
+    }
+
+    // Target of a state on a character, or NONE
+    public int step(int state, char c) {
+        return delta[state * classCount + classOf[c]];
+    }
+
+    // Bytes held by the transition table and the accepting bitmap
+    public long memoryBytes() {
+        return (long) delta.length * Integer.BYTES + (long) accepting.length * Long.BYTES;
+    }
+
+    // The object form, for printAutomaton and writeDotFile
+    public Automaton toAutomaton() {
+        return Automaton.fromDFA(this);
+    }
+}
@@ -0,0 +1,258 @@
+package regex;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// Thompson NFA on int arrays, for building automata without an object per state and per transition.
+// While building, edges are appended to parallel IntArrayLists; once built they are grouped by source state in
+// compressed sparse rows: the symbol edges of state s are [symbolStart[s], symbolStart[s + 1]) in symbolLabel
+// and symbolTarget, and its epsilon edges [epsilonStart[s], epsilonStart[s + 1]) in epsilonTarget.
+// Accepting states are a bitset. A pattern of m symbols costs a handful of int arrays of O(m) entries.
+// Two constructions: Thompson's, with epsilon edges, and Glushkov's position automaton, without any.
+public final class IntNFA {
+    public final int stateCount;
+    public final int startState;
+    final int[] symbolStart;
+    final int[] symbolLabel;
+    final int[] symbolTarget;
+    final int[] epsilonStart;
+    final int[] epsilonTarget;
+    final long[] accepting;
+    final int[] endStates;       // Thompson: endStates[i] is the accepting state of pattern i; Glushkov: all of them
+    final int[] alphabet;        // distinct symbol labels, sorted, DOT included when used
+
+    private IntNFA(Builder builder, int startState, int[] endStates) {
+        this.stateCount = builder.stateCount;
+        this.startState = startState;
+        this.endStates = endStates;
+
+        int[] from = builder.symbolFrom.toArray();
+        int[] labels = builder.symbolLabel.toArray();
+        int[] targets = builder.symbolTarget.toArray();
+        this.symbolStart = new int[stateCount + 1];
+        this.symbolLabel = new int[from.length];
+        this.symbolTarget = new int[from.length];
+        group(from, labels, targets, symbolStart, symbolLabel, symbolTarget);
+
+        int[] epsilonFrom = builder.epsilonFrom.toArray();
+        int[] epsilonTargets = builder.epsilonTarget.toArray();
+        this.epsilonStart = new int[stateCount + 1];
+        this.epsilonTarget = new int[epsilonFrom.length];
+        group(epsilonFrom, null, epsilonTargets, epsilonStart, null, epsilonTarget);
+
+        this.accepting = new long[(stateCount + 63) >>> 6];
+        for (int state : endStates) {
+            accepting[state >>> 6] |= 1L << state;
+        }
+
+        int[] sorted = labels.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        this.alphabet = Arrays.copyOf(sorted, distinct);
+    }
+
+    // Counting sort of the edges by source state, keeping their order within a state
+    private static void group(int[] from, int[] labels, int[] targets, int[] start, int[] groupedLabels, int[] groupedTargets) {
+        for (int source : from) {
+            start[source + 1]++;
+        }
+        for (int state = 0; state + 1 < start.length; state++) {
+            start[state + 1] += start[state];
+        }
+        int[] next = Arrays.copyOf(start, start.length - 1);
+        for (int edge = 0; edge < from.length; edge++) {
+            int slot = next[from[edge]]++;
+            if (groupedLabels != null) {
+                groupedLabels[slot] = labels[edge];
+            }
+            groupedTargets[slot] = targets[edge];
+        }
+    }
+
+    public static IntNFA fromRegexTree(RegExTree tree) throws Exception {
+        Builder builder = new Builder();
+        int[] states = builder.build(tree);
+        return new IntNFA(builder, states[0], new int[]{states[1]});
+    }
+
+    // Union of several patterns: a new start state has an epsilon edge to each of them, and endState(i) is the
+    // accepting state of trees.get(i), so a match can be traced back to its pattern
+    public static IntNFA union(List<RegExTree> trees) throws Exception {
+        Builder builder = new Builder();
+        int start = builder.newState();
+        int[] ends = new int[trees.size()];
+        for (int i = 0; i < trees.size(); i++) {
+            int[] states = builder.build(trees.get(i));
+            builder.addEpsilon(start, states[0]);
+            ends[i] = states[1];
+        }
+        return new IntNFA(builder, start, ends);
+    }
+
+    // Glushkov position automaton: state 0 is the initial state and state p + 1 stands for position p. Every edge
+    // into p + 1 reads the symbol of p and there is no epsilon edge, so subset construction has no closure to
+    // compute, and the automaton has one state per symbol occurrence plus one, where Thompson's has two per
+    // symbol and two per operator
+    public static IntNFA positionAutomaton(RegExTree tree) throws Exception {
+        Glushkov glushkov = Glushkov.fromRegexTree(tree);
+        Builder builder = new Builder();
+        builder.stateCount = glushkov.size() + 1;
+        for (int p = glushkov.first.nextSetBit(0); p >= 0; p = glushkov.first.nextSetBit(p + 1)) {
+            builder.addSymbol(0, glushkov.symbols[p], p + 1);
+        }
+        for (int q = 0; q < glushkov.size(); q++) {
+            BitSet follow = glushkov.follow[q];
+            for (int p = follow.nextSetBit(0); p >= 0; p = follow.nextSetBit(p + 1)) {
+                builder.addSymbol(q + 1, glushkov.symbols[p], p + 1);
+            }
+        }
+        IntArrayList accepting = new IntArrayList();
+        if (glushkov.nullable) {
+            accepting.add(0);
+        }
+        for (int p = glushkov.last.nextSetBit(0); p >= 0; p = glushkov.last.nextSetBit(p + 1)) {
+            accepting.add(p + 1);
+        }
+        return new IntNFA(builder, 0, accepting.toArray());
+    }
+
+    // Copies an NFA built on the object graph
+    public static IntNFA fromAutomaton(Automaton nfa) {
+        Builder builder = new Builder();
+        builder.stateCount = nfa.stateCount;
+        for (int state = 0; state < nfa.stateCount; state++) {
+            for (Transition transition : nfa.transitionTable.get(state).getTransitions()) {
+                if (transition.getTransitionSymbol() == Automaton.EPSILON) {
+                    builder.addEpsilon(state, transition.getToStateId());
+                } else {
+                    builder.addSymbol(state, transition.getTransitionSymbol(), transition.getToStateId());
+                }
+            }
+        }
+        int[] ends = new int[nfa.endStates.size()];
+        for (int i = 0; i < ends.length; i++) {
+            ends[i] = nfa.endStates.get(i);
+        }
+        return new IntNFA(builder, nfa.startState, ends);
+    }
+
+    public int symbolEdgesStart(int state) {
+        return symbolStart[state];
+    }
+
+    public int symbolEdgesEnd(int state) {
+        return symbolStart[state + 1];
+    }
+
+    public int symbolLabel(int edge) {
+        return symbolLabel[edge];
+    }
+
+    public int symbolTarget(int edge) {
+        return symbolTarget[edge];
+    }
+
+    public int epsilonEdgesStart(int state) {
+        return epsilonStart[state];
+    }
+
+    public int epsilonEdgesEnd(int state) {
+        return epsilonStart[state + 1];
+    }
+
+    public int epsilonTarget(int edge) {
+        return epsilonTarget[edge];
+    }
+
+    public boolean hasEpsilonEdges() {
+        return epsilonTarget.length > 0;
+    }
+
+    public boolean isAccepting(int state) {
+        return (accepting[state >>> 6] & (1L << state)) != 0;
+    }
+
+    public int endState(int pattern) {
+        return endStates[pattern];
+    }
+
+    // Bytes held by the arrays of the automaton
+    public long memoryBytes() {
+        return (long) Integer.BYTES * (symbolStart.length + symbolLabel.length + symbolTarget.length
+                + epsilonStart.length + epsilonTarget.length + endStates.length + alphabet.length)
+                + (long) Long.BYTES * accepting.length;
+    }
+
+    // Thompson construction, also behind Automaton.buildFromRegexTree
+    private static final class Builder {
+        private final IntArrayList symbolFrom = new IntArrayList();
+        private final IntArrayList symbolLabel = new IntArrayList();
+        private final IntArrayList symbolTarget = new IntArrayList();
+        private final IntArrayList epsilonFrom = new IntArrayList();
+        private final IntArrayList epsilonTarget = new IntArrayList();
+        private int stateCount;
+
+        private int newState() {
+            return stateCount++;
+        }
+
+        private void addSymbol(int from, int symbol, int to) {
+            symbolFrom.add(from);
+            symbolLabel.add(symbol);
+            symbolTarget.add(to);
+        }
+
+        private void addEpsilon(int from, int to) {
+            epsilonFrom.add(from);
+            epsilonTarget.add(to);
+        }
+
+        // Returns {start, end} of the fragment for tree
+        private int[] build(RegExTree tree) throws Exception {
+            if (tree.subTrees.isEmpty()) {
+                int s1 = newState();
+                int s2 = newState();
+                addSymbol(s1, tree.root, s2);
+                return new int[]{s1, s2};
+            }
+
+            if (tree.root == RegEx.CONCAT) {
+                int[] left = build(tree.subTrees.get(0));
+                int[] right = build(tree.subTrees.get(1));
+                addEpsilon(left[1], right[0]);
+                return new int[]{left[0], right[1]};
+            }
+
+            if (tree.root == RegEx.ALTERN) {
+                int s1 = newState();
+                int s2 = newState();
+                int[] left = build(tree.subTrees.get(0));
+                int[] right = build(tree.subTrees.get(1));
+                addEpsilon(s1, left[0]);
+                addEpsilon(s1, right[0]);
+                addEpsilon(left[1], s2);
+                addEpsilon(right[1], s2);
+                return new int[]{s1, s2};
+            }
+
+            if (tree.root == RegEx.ETOILE) {
+                int s1 = newState();
+                int s2 = newState();
+                int[] sub = build(tree.subTrees.get(0));
+                addEpsilon(s1, sub[0]);
+                addEpsilon(s1, s2);
+                addEpsilon(sub[1], sub[0]);
+                addEpsilon(sub[1], s2);
+                return new int[]{s1, s2};
+            }
+
+            throw new Exception("Unknown regex operator");
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package regex;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+// Determinizes a Thompson NFA on the fly, while scanning.
+// A DFA state (a set of NFA states) is only created when the input reaches it, and lives in a cache of at most
+// cacheStates states; when the cache is full it is flushed and rebuilt from the states the input needs next.
+// Compilation is a single pass over the NFA and memory stays bounded whatever the pattern.
+// The search is unanchored: the start closure is part of every state, so a match may begin anywhere in the line.
+// A scan checks a cache out of a pool and returns it when done: the pool holds one cache per processor, so the
+// states built while scanning one file serve the next one, whichever (virtual) thread scans it.
+public class LazyDFA {
+    public static final int DEFAULT_CACHE_STATES = 4096;
+    private static final int UNKNOWN = -1;
+    private static final int START = 0;   // the start state is always the first state of a cache
+    private static final int POOLED_CACHES = Runtime.getRuntime().availableProcessors();
+
+    private final BitsetNFA nfa;
+    private final char[] classOf;         // character -> class, class 0 is every character absent from the pattern
+    private final char[] byteClassOf;     // UTF-8 byte -> column, null when the pattern is not ASCII
+    private final int classCount;
+    private final int stride;             // classes, then line break and continuation byte columns
+    private final int cacheStates;
+    private final ArrayBlockingQueue<Cache> caches = new ArrayBlockingQueue<>(POOLED_CACHES); // idle caches
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder cachesCreated = new LongAdder();
+
+    public LazyDFA(IntNFA nfa, int cacheStates) {
+        this.nfa = new BitsetNFA(nfa);
+        this.classOf = this.nfa.classOf;
+        this.classCount = this.nfa.classCount;
+        this.stride = classCount + 2;
+        this.byteClassOf = this.nfa.asciiLiterals ? byteClasses() : null;
+        this.cacheStates = Math.max(2, cacheStates); // room for the start state and the state being entered
+    }
+
+    private char[] byteClasses() {
+        char[] byteClassOf = new char[256];
+        for (int b = 0; b < 0x80; b++) {
+            byteClassOf[b] = classOf[b];
+        }
+        for (int b = 0x80; b < 0xC0; b++) {
+            byteClassOf[b] = (char) (classCount + 1);
+        }
+        byteClassOf['\n'] = (char) classCount;
+        return byteClassOf;
+    }
+
+    // Returns the position of the character on which a match ends, or -1. A pattern matching the empty
+    // string matches every line.
+    public int find(CharSequence line) {
+        Cache cache = checkOut();
+        try {
+            int state = START;
+            if (cache.isAccepting(state)) {
+                return 0;
+            }
+            for (int i = 0, n = line.length(); i < n; i++) {
+                int column = classOf[line.charAt(i)];
+                int next = cache.table[state * stride + column];
+                state = next != UNKNOWN ? next : cache.computeTransition(state, column);
+                if (cache.isAccepting(state)) {
+                    return i;
+                }
+            }
+            return -1;
+        } finally {
+            caches.offer(cache);
+        }
+    }
+
+    public boolean supportsBytes() {
+        return byteClassOf != null;
+    }
+
+    // Same as find over the UTF-8 lines in buffer[from, to), from being the start of a line
+    public int find(ByteBuffer buffer, int from, int to) {
+        Cache cache = checkOut();
+        try {
+            int state = START;
+            if (cache.isAccepting(state)) {
+                return from;
+            }
+            for (int i = from; i < to; i++) {
+                int column = byteClassOf[buffer.get(i) & 0xFF];
+                int next = cache.table[state * stride + column];
+                state = next != UNKNOWN ? next : cache.computeTransition(state, column);
+                if (cache.isAccepting(state) && !CompiledDFA.endsLine(buffer, i, to)) {
+                    return i;
+                }
+            }
+            return -1;
+        } finally {
+            caches.offer(cache);
+        }
+    }
+
+    // An idle cache from the pool, or a new one when every pooled cache is in use; offer drops it if the pool is full
+    private Cache checkOut() {
+        Cache cache = caches.poll();
+        if (cache == null) {
+            cachesCreated.increment();
+            cache = new Cache();
+        }
+        return cache;
+    }
+
+    // The DFA states known to one scan; a cache is checked out by one scan at a time, so scanning needs no locking
+    private final class Cache {
+        final HashMap<StateSet, Integer> ids = new HashMap<>();
+        final StateSet[] sets = new StateSet[cacheStates];
+        final int[] table = new int[cacheStates * stride];
+        final long[] accepting = new long[(cacheStates + 63) >>> 6];
+        int size;
+
+        Cache() {
+            flush();
+        }
+
+        boolean isAccepting(int state) {
+            return (accepting[state >>> 6] & (1L << state)) != 0;
+        }
+
+        int computeTransition(int state, int column) {
+            StateSet target = move(sets[state], column);
+            if (size == cacheStates && !ids.containsKey(target)) {
+                flush();
+                flushes.increment();
+                // the old state is gone; the target starts the new cache right after the start state
+                return add(target);
+            }
+            int next = add(target);
+            table[state * stride + column] = next;
+            return next;
+        }
+
+        private void flush() {
+            ids.clear();
+            Arrays.fill(table, UNKNOWN);
+            Arrays.fill(accepting, 0);
+            Arrays.fill(sets, null);
+            size = 0;
+            add(new StateSet(nfa.startSet.clone()));
+        }
+
+        private int add(StateSet set) {
+            Integer existing = ids.get(set);
+            if (existing != null) {
+                return existing;
+            }
+            int id = size++;
+            ids.put(set, id);
+            sets[id] = set;
+            if (set.intersects(nfa.acceptSet)) {
+                accepting[id >>> 6] |= 1L << id;
+            }
+            table[id * stride + classCount] = START;
+            table[id * stride + classCount + 1] = id;
+            return id;
+        }
+
+        // NFA states reached from set on a class, plus the start closure
+        private StateSet move(StateSet set, int column) {
+            long[] result = nfa.startSet.clone();
+            nfa.move(set.bits, column, result);
+            return new StateSet(result);
+        }
+    }
+
+    // Class map plus the table of one full cache; each scan running at the same time checks out its own cache
+    public long memoryBytes() {
+        return (long) classOf.length * Character.BYTES + (long) cacheStates * stride * Integer.BYTES;
+    }
+
+    public int cacheStates() {
+        return cacheStates;
+    }
+
+    // Number of times a cache was flushed, all caches included
+    public long flushes() {
+        return flushes.sum();
+    }
+
+    // Number of caches built; past the pool size only when more scans than that ran at the same time
+    public long cachesCreated() {
+        return cachesCreated.sum();
+    }
+}
@@ -0,0 +1,160 @@
+package regex;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+// One DFA for the union of several patterns, whose states know which patterns have a match ending on them, so
+// a single pass over a file tells which patterns every line matches.
+// The subset construction is unanchored (the start set joins every move, a match may begin on any character),
+// and Hopcroft starts from the partition by pattern sets, so states accepting different patterns never merge.
+public class MultiPatternDFA {
+    private final int patternCount;
+    private final CompiledDFA dfa;
+    private final long[][] patternsOf;   // state -> patterns with a match ending on it, null if none
+
+    public MultiPatternDFA(List<RegExTree> trees) throws Exception {
+        this.patternCount = trees.size();
+        IntNFA nfa = IntNFA.union(trees);
+        BitsetNFA bits = new BitsetNFA(nfa);
+        int k = bits.classCount;
+
+        // Step 1: subset construction over the character classes; every move also holds the start set, so
+        // the table is complete and nothing needs restarting
+        HashMap<StateSet, Integer> stateMap = new HashMap<>();
+        List<StateSet> sets = new ArrayList<>();
+        StateSet startSet = new StateSet(bits.startSet);
+        stateMap.put(startSet, 0);
+        sets.add(startSet);
+        int[] delta = new int[64 * k];
+        long[] nextBits = new long[bits.words];
+        for (int current = 0; current < sets.size(); current++) {
+            long[] currentBits = sets.get(current).bits;
+            if ((current + 1) * k > delta.length) {
+                delta = Arrays.copyOf(delta, delta.length * 2);
+            }
+            for (int characterClass = 0; characterClass < k; characterClass++) {
+                bits.move(currentBits, characterClass, nextBits);
+                for (int word = 0; word < bits.words; word++) {
+                    nextBits[word] |= bits.startSet[word];
+                }
+                StateSet nextSet = new StateSet(nextBits);
+                Integer next = stateMap.get(nextSet);
+                if (next == null) {
+                    next = sets.size();
+                    stateMap.put(nextSet, next);
+                    sets.add(nextSet);
+                    nextBits = new long[bits.words];
+                } else {
+                    Arrays.fill(nextBits, 0);
+                }
+                delta[current * k + characterClass] = next;
+            }
+        }
+
+        // Step 2: label every state with the set of patterns it accepts, label 0 being the empty set
+        int n = sets.size();
+        int patternWords = (patternCount + 63) >>> 6;
+        int[] label = new int[n];
+        HashMap<StateSet, Integer> labelOf = new HashMap<>();
+        List<long[]> patternsOfLabel = new ArrayList<>();
+        labelOf.put(new StateSet(new long[patternWords]), 0);
+        patternsOfLabel.add(null);
+        for (int state = 0; state < n; state++) {
+            long[] set = sets.get(state).bits;
+            long[] patterns = new long[patternWords];
+            for (int pattern = 0; pattern < patternCount; pattern++) {
+                int end = nfa.endState(pattern);
+                if ((set[end >>> 6] & (1L << end)) != 0) {
+                    patterns[pattern >>> 6] |= 1L << pattern;
+                }
+            }
+            StateSet key = new StateSet(patterns);
+            Integer stateLabel = labelOf.get(key);
+            if (stateLabel == null) {
+                stateLabel = patternsOfLabel.size();
+                labelOf.put(key, stateLabel);
+                patternsOfLabel.add(patterns);
+            }
+            label[state] = stateLabel;
+        }
+
+        // Step 3: minimize, one state per block
+        int[] blockOf = Hopcroft.minimize(delta, n, k, label);
+        int blockCount = 0;
+        for (int state = 0; state < n; state++) {
+            blockCount = Math.max(blockCount, blockOf[state] + 1);
+        }
+        int[] minimized = new int[blockCount * k];
+        long[] accepting = new long[(blockCount + 63) >>> 6];
+        this.patternsOf = new long[blockCount][];
+        for (int state = 0; state < n; state++) {
+            int block = blockOf[state];
+            for (int characterClass = 0; characterClass < k; characterClass++) {
+                minimized[block * k + characterClass] = blockOf[delta[state * k + characterClass]];
+            }
+            patternsOf[block] = patternsOfLabel.get(label[state]);
+            if (label[state] != 0) {
+                accepting[block >>> 6] |= 1L << block;
+            }
+        }
+        this.dfa = CompiledDFA.fromTable(blockOf[0], blockCount, minimized, k, bits.classOf, accepting);
+    }
+
+    public int patternCount() {
+        return patternCount;
+    }
+
+    public int stateCount() {
+        return dfa.stateCount;
+    }
+
+    // Some pattern matches the empty string, hence every line
+    public boolean matchesEmpty() {
+        return dfa.isAccepting(dfa.startState);
+    }
+
+    public int find(CharSequence line) {
+        return dfa.find(line);
+    }
+
+    public boolean supportsBytes() {
+        return dfa.supportsBytes();
+    }
+
+    public int find(ByteBuffer buffer, int from, int to) {
+        return dfa.find(buffer, from, to);
+    }
+
+    // ORs into matched, one bit per pattern, every pattern having a match in line
+    public void matchingPatterns(CharSequence line, long[] matched) {
+        int state = dfa.startState;
+        or(matched, patternsOf[state]);
+        for (int i = 0, n = line.length(); i < n; i++) {
+            state = dfa.table[state * dfa.stride + dfa.classOf[line.charAt(i)]];
+            or(matched, patternsOf[state]);
+        }
+    }
+
+    private static void or(long[] matched, long[] patterns) {
+        if (patterns != null) {
+            for (int word = 0; word < patterns.length; word++) {
+                matched[word] |= patterns[word];
+            }
+        }
+    }
+
+    public long tableBytes() {
+        return dfa.tableBytes();
+    }
+
+    public long memoryBytes() {
+        long patternSets = 0;
+        for (long[] patterns : patternsOf) {
+            patternSets += patterns == null ? 0 : patterns.length * Long.BYTES;
+        }
+        return dfa.memoryBytes() + patternSets;
+    }
+}
@@ -15,9 +15,6 @@ public class RegEx {
     static final int DOT = 0xD07;
     static final int ADD = 0xA33;
 
-    //REGEX
-    private static String regEx;
-
     //CONSTRUCTOR
     public RegEx() {
     }
@@ -25,6 +22,7 @@ public class RegEx {
     //MAIN
     public static void main(String arg[]) {
         System.out.println("Welcome to Bogota, Mr. Thomas Anderson.");
+        String regEx;
         if (arg.length != 0) {
             regEx = arg[0];
         } else {
@@ -35,236 +33,35 @@ public class RegEx {
         System.out.println("  >> Parsing regEx \"" + regEx + "\".");
         System.out.println("  >> ...");
 
-        if (regEx.length() < 1) {
-            System.err.println("  >> ERROR: empty regEx.");
-        } else {
-            System.out.print("  >> ASCII codes: [" + (int) regEx.charAt(0));
-            for (int i = 1; i < regEx.length(); i++) System.out.print("," + (int) regEx.charAt(i));
-            System.out.println("].");
-            try {
-                RegExTree ret = parse();
-                System.out.println("  >> Tree result: " + ret.toString() + ".");
-            } catch (Exception e) {
-                System.err.println("  >> ERROR: syntax error for regEx \"" + regEx + "\".");
-            }
-        }
-
+        parse(regEx);
         System.out.println("  >> ...");
         System.out.println("  >> Parsing completed.");
         System.out.println("Goodbye Mr. Anderson.");
     }
 
     public static RegExTree parse(String regex) {
-        regEx = regex;
-        if (regEx.length() < 1) {
-            System.err.println("  >> ERROR: empty regEx.");
-        } else {
-            System.out.print("  >> ASCII codes: [" + (int) regEx.charAt(0));
-            for (int i = 1; i < regEx.length(); i++) System.out.print("," + (int) regEx.charAt(i));
-            System.out.println("].");
-            try {
-                RegExTree ret = parse();
-                System.out.println("  >> Tree result: " + ret.toString() + ".");
-                return ret;
-            } catch (Exception e) {
-                System.err.println("  >> ERROR: syntax error for regEx \"" + regEx + "\".");
-            }
-        }
-        return null;
+        return parse(regex, true);
     }
 
+    // Returns null and reports the error when the regex does not parse; RegExParser throws it with its position
     public static RegExTree parse(String regex, Boolean debug) {
-        regEx = regex;
-        if (regEx.length() < 1) {
-            if (debug)
-                System.err.println("  >> ERROR: empty regEx.");
-        } else {
-            if (debug) System.out.print("  >> ASCII codes: [" + (int) regEx.charAt(0));
-            for (int i = 1; i < regEx.length(); i++)
-                if (debug) System.out.print("," + (int) regEx.charAt(i));
-            if (debug) System.out.println("].");
-            try {
-                RegExTree ret = parse();
-                if (debug) System.out.println("  >> Tree result: " + ret.toString() + ".");
-                return ret;
-            } catch (Exception e) {
-                if (debug) System.err.println("  >> ERROR: syntax error for regEx \"" + regEx + "\".");
-            }
+        if (regex.length() < 1) {
+            if (debug) System.err.println("  >> ERROR: empty regEx.");
+            return null;
         }
-        return null;
-    }
-
-    //FROM REGEX TO SYNTAX TREE
-    private static RegExTree parse() throws Exception {
-        ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-        for (int i = 0; i < regEx.length(); i++)
-            result.add(
-                    new RegExTree(
-                            charToRoot(
-                                    regEx.charAt(i)
-                            ), new ArrayList<RegExTree>())
-            );
-
-        return parse(result);
-    }
-
-    private static int charToRoot(char c) {
-        if (c == '.') return DOT;
-        if (c == '*') return ETOILE;
-        if (c == '|') return ALTERN;
-        if (c == '(') return PARENTHESEOUVRANT;
-        if (c == ')') return PARENTHESEFERMANT;
-        return (int) c;
-    }
-
-    private static RegExTree parse(ArrayList<RegExTree> result) throws Exception {
-        while (containParenthese(result)) result = processParenthese(result);
-        while (containEtoile(result)) result = processEtoile(result);
-        while (containConcat(result)) result = processConcat(result);
-        while (containAltern(result)) result = processAltern(result);
-
-        if (result.size() > 1) throw new Exception();
-
-        return removeProtection(result.get(0));
-    }
-
-    //PROCESSING
-
-
-    private static boolean containParenthese(ArrayList<RegExTree> trees) {
-        for (RegExTree t : trees) if (t.root == PARENTHESEFERMANT || t.root == PARENTHESEOUVRANT) return true;
-        return false;
-    }
-
-    private static ArrayList<RegExTree> processParenthese(ArrayList<RegExTree> trees) throws Exception {
-        ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-        boolean found = false;
-        for (RegExTree t : trees) {
-            if (!found && t.root == PARENTHESEFERMANT) {
-                boolean done = false;
-                ArrayList<RegExTree> content = new ArrayList<RegExTree>();
-                while (!done && !result.isEmpty())
-                    if (result.get(result.size() - 1).root == PARENTHESEOUVRANT) {
-                        done = true;
-                        result.remove(result.size() - 1);
-                    } else content.add(0, result.remove(result.size() - 1));
-                if (!done) throw new Exception();
-                found = true;
-                ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-                subTrees.add(parse(content));
-                result.add(new RegExTree(PROTECTION, subTrees));
-            } else {
-                result.add(t);
-            }
-        }
-        if (!found) throw new Exception();
-        return result;
-    }
-
-    private static boolean containEtoile(ArrayList<RegExTree> trees) {
-        for (RegExTree t : trees) if (t.root == ETOILE && t.subTrees.isEmpty()) return true;
-        return false;
-    }
-
-    private static ArrayList<RegExTree> processEtoile(ArrayList<RegExTree> trees) throws Exception {
-        ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-        boolean found = false;
-        for (RegExTree t : trees) {
-            if (!found && t.root == ETOILE && t.subTrees.isEmpty()) {
-                if (result.isEmpty()) throw new Exception();
-                found = true;
-                RegExTree last = result.remove(result.size() - 1);
-                ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-                subTrees.add(last);
-                result.add(new RegExTree(ETOILE, subTrees));
-            } else {
-                result.add(t);
-            }
-        }
-        return result;
-    }
-
-    private static boolean containConcat(ArrayList<RegExTree> trees) {
-        boolean firstFound = false;
-        for (RegExTree t : trees) {
-            if (!firstFound && t.root != ALTERN) {
-                firstFound = true;
-                continue;
-            }
-            if (firstFound) if (t.root != ALTERN) return true;
-            else firstFound = false;
-        }
-        return false;
-    }
-
-    private static ArrayList<RegExTree> processConcat(ArrayList<RegExTree> trees) throws Exception {
-        ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-        boolean found = false;
-        boolean firstFound = false;
-        for (RegExTree t : trees) {
-            if (!found && !firstFound && t.root != ALTERN) {
-                firstFound = true;
-                result.add(t);
-                continue;
-            }
-            if (!found && firstFound && t.root == ALTERN) {
-                firstFound = false;
-                result.add(t);
-                continue;
-            }
-            if (!found && firstFound && t.root != ALTERN) {
-                found = true;
-                RegExTree last = result.remove(result.size() - 1);
-                ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-                subTrees.add(last);
-                subTrees.add(t);
-                result.add(new RegExTree(CONCAT, subTrees));
-            } else {
-                result.add(t);
-            }
+        if (debug) {
+            System.out.print("  >> ASCII codes: [" + (int) regex.charAt(0));
+            for (int i = 1; i < regex.length(); i++) System.out.print("," + (int) regex.charAt(i));
+            System.out.println("].");
         }
-        return result;
-    }
-
-    private static boolean containAltern(ArrayList<RegExTree> trees) {
-        for (RegExTree t : trees) if (t.root == ALTERN && t.subTrees.isEmpty()) return true;
-        return false;
-    }
-
-    private static ArrayList<RegExTree> processAltern(ArrayList<RegExTree> trees) throws Exception {
-        ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-        boolean found = false;
-        RegExTree gauche = null;
-        boolean done = false;
-        for (RegExTree t : trees) {
-            if (!found && t.root == ALTERN && t.subTrees.isEmpty()) {
-                if (result.isEmpty()) throw new Exception();
-                found = true;
-                gauche = result.remove(result.size() - 1);
-                continue;
-            }
-            if (found && !done) {
-                if (gauche == null) throw new Exception();
-                done = true;
-                ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-                subTrees.add(gauche);
-                subTrees.add(t);
-                result.add(new RegExTree(ALTERN, subTrees));
-            } else {
-                result.add(t);
-            }
+        try {
+            RegExTree ret = new RegExParser(regex).parse();
+            if (debug) System.out.println("  >> Tree result: " + ret.toString() + ".");
+            return ret;
+        } catch (RegExSyntaxException e) {
+            if (debug) System.err.println("  >> ERROR: syntax error for regEx \"" + regex + "\": " + e.getMessage() + ".");
         }
-        return result;
-    }
-
-    private static RegExTree removeProtection(RegExTree tree) throws Exception {
-        if (tree.root == PROTECTION && tree.subTrees.size() != 1) throw new Exception();
-        if (tree.subTrees.isEmpty()) return tree;
-        if (tree.root == PROTECTION) return removeProtection(tree.subTrees.get(0));
-
-        ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-        for (RegExTree t : tree.subTrees) subTrees.add(removeProtection(t));
-        return new RegExTree(tree.root, subTrees);
+        return null;
     }
 
     //EXAMPLE
@@ -0,0 +1,92 @@
+package regex;
+
+import java.util.ArrayList;
+
+// Single pass recursive descent parser, one instance per regex so parsing is safe on any number of threads.
+// Grammar, building the same trees RegEx.parse always built (left associative | and concatenation, * binding
+// to the atom before it):
+//   alternation   := concatenation ('|' concatenation)*
+//   concatenation := repetition repetition*
+//   repetition    := atom '*'*
+//   atom          := '(' alternation ')' | '.' | any other character
+public class RegExParser {
+    private final String regex;
+    private int position;
+
+    public RegExParser(String regex) {
+        this.regex = regex;
+    }
+
+    public RegExTree parse() throws RegExSyntaxException {
+        if (regex.isEmpty()) {
+            throw new RegExSyntaxException(regex, 0, "Empty regex");
+        }
+        position = 0;
+        RegExTree tree = alternation();
+        if (position < regex.length()) {
+            // alternation only stops early on a ')' it did not open
+            throw new RegExSyntaxException(regex, position, "Unmatched ')'");
+        }
+        return tree;
+    }
+
+    private RegExTree alternation() throws RegExSyntaxException {
+        RegExTree tree = concatenation();
+        while (position < regex.length() && regex.charAt(position) == '|') {
+            position++;
+            tree = node(RegEx.ALTERN, tree, concatenation());
+        }
+        return tree;
+    }
+
+    private RegExTree concatenation() throws RegExSyntaxException {
+        if (atEndOfTerm()) {
+            throw new RegExSyntaxException(regex, position, position < regex.length()
+                    ? "Expected an expression before '" + regex.charAt(position) + "'" : "Expected an expression");
+        }
+        RegExTree tree = repetition();
+        while (!atEndOfTerm()) {
+            tree = node(RegEx.CONCAT, tree, repetition());
+        }
+        return tree;
+    }
+
+    private boolean atEndOfTerm() {
+        return position >= regex.length() || regex.charAt(position) == '|' || regex.charAt(position) == ')';
+    }
+
+    private RegExTree repetition() throws RegExSyntaxException {
+        RegExTree tree = atom();
+        while (position < regex.length() && regex.charAt(position) == '*') {
+            position++;
+            tree = node(RegEx.ETOILE, tree);
+        }
+        return tree;
+    }
+
+    private RegExTree atom() throws RegExSyntaxException {
+        char c = regex.charAt(position);
+        if (c == '*') {
+            throw new RegExSyntaxException(regex, position, "Nothing to repeat before '*'");
+        }
+        if (c == '(') {
+            int open = position++;
+            RegExTree tree = alternation();
+            if (position >= regex.length()) {
+                throw new RegExSyntaxException(regex, open, "Unclosed '('");
+            }
+            position++; // the ')' that stopped alternation
+            return tree;
+        }
+        position++;
+        return new RegExTree(c == '.' ? RegEx.DOT : c, new ArrayList<>());
+    }
+
+    private static RegExTree node(int root, RegExTree... subTrees) {
+        ArrayList<RegExTree> children = new ArrayList<>(subTrees.length);
+        for (RegExTree subTree : subTrees) {
+            children.add(subTree);
+        }
+        return new RegExTree(root, children);
+    }
+}
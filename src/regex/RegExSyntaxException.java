@@ -0,0 +1,24 @@
+package regex;
+
+// A regex that cannot be parsed, with the position of the offending character (the length of the regex when
+// the error is at its end)
+public class RegExSyntaxException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final String regex;
+    private final int position;
+
+    public RegExSyntaxException(String regex, int position, String message) {
+        super(message + " at position " + position + " in \"" + regex + "\"");
+        this.regex = regex;
+        this.position = position;
+    }
+
+    public String getRegex() {
+        return regex;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+}
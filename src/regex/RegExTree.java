@@ -1,6 +1,7 @@
 package regex;
 
 import java.util.ArrayList;
+import java.util.List;
 
 //UTILITARY CLASS
 public class RegExTree {
@@ -28,6 +29,35 @@ public class RegExTree {
         return Character.toString((char) root);
     }
 
+    // The branches of an alternation of plain literals, such as the|and|of, or null for any other tree
+    public List<String> literalAlternatives() {
+        List<String> literals = new ArrayList<>();
+        return collectAlternatives(literals) ? literals : null;
+    }
+
+    private boolean collectAlternatives(List<String> literals) {
+        if (root == RegEx.ALTERN) {
+            return subTrees.get(0).collectAlternatives(literals) && subTrees.get(1).collectAlternatives(literals);
+        }
+        StringBuilder literal = new StringBuilder();
+        if (!appendLiteral(literal)) {
+            return false;
+        }
+        literals.add(literal.toString());
+        return true;
+    }
+
+    private boolean appendLiteral(StringBuilder literal) {
+        if (subTrees.isEmpty()) {
+            if (root == RegEx.DOT) {
+                return false;
+            }
+            literal.append((char) root);
+            return true;
+        }
+        return root == RegEx.CONCAT && subTrees.get(0).appendLiteral(literal) && subTrees.get(1).appendLiteral(literal);
+    }
+
     // Getters
     public int getRoot() {
         return root;
@@ -0,0 +1,154 @@
+package regex;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Literal factors every match of a RegExTree must contain, in the spirit of GNU grep's dfamust.
+// Every node gets its exact language when it is a small finite set of strings, a prefix and a suffix shared by
+// all its matches, and a factor contained in all its matches; concatenation glues the suffix of the left side to
+// the prefix of the right side, alternation keeps what both sides have in common.
+public class RequiredLiterals {
+    private static final int MAX_EXACT = 32;  // beyond that many alternatives the exact set is dropped
+
+    private RequiredLiterals() {
+    }
+
+    // Longest literal contained in every match, empty if there is none (e.g. the pattern matches the empty string)
+    public static String longest(RegExTree tree) throws Exception {
+        Must must = analyse(tree);
+        String best = must.in;
+        if (must.left.length() > best.length()) {
+            best = must.left;
+        }
+        if (must.right.length() > best.length()) {
+            best = must.right;
+        }
+        return best;
+    }
+
+    private static Must analyse(RegExTree tree) throws Exception {
+        if (tree.subTrees.isEmpty()) {
+            if (tree.root == RegEx.DOT) {
+                return Must.NONE;
+            }
+            String literal = Character.toString((char) tree.root);
+            return new Must(Set.of(literal), literal, literal, literal);
+        }
+
+        if (tree.root == RegEx.ETOILE) {
+            // zero repetitions match the empty string
+            return Must.NONE;
+        }
+
+        Must left = analyse(tree.subTrees.get(0));
+        Must right = analyse(tree.subTrees.get(1));
+
+        if (tree.root == RegEx.CONCAT) {
+            Set<String> exact = null;
+            if (left.exact != null && right.exact != null && left.exact.size() * right.exact.size() <= MAX_EXACT) {
+                exact = new LinkedHashSet<>();
+                for (String l : left.exact) {
+                    for (String r : right.exact) {
+                        exact.add(l + r);
+                    }
+                }
+            }
+            String prefix = left.left;
+            if (left.exact != null) {
+                prefix = null;
+                for (String l : left.exact) {
+                    prefix = prefix == null ? l + right.left : commonPrefix(prefix, l + right.left);
+                }
+            }
+            String suffix = right.right;
+            if (right.exact != null) {
+                suffix = null;
+                for (String r : right.exact) {
+                    suffix = suffix == null ? left.right + r : commonSuffix(suffix, left.right + r);
+                }
+            }
+            String in = longestOf(left.in, right.in, left.right + right.left);
+            if (exact != null) {
+                in = longestOf(in, commonFactor(exact));
+            }
+            return new Must(exact, prefix, suffix, longestOf(in, prefix, suffix));
+        }
+
+        if (tree.root == RegEx.ALTERN) {
+            Set<String> exact = null;
+            if (left.exact != null && right.exact != null && left.exact.size() + right.exact.size() <= MAX_EXACT) {
+                exact = new LinkedHashSet<>(left.exact);
+                exact.addAll(right.exact);
+            }
+            String prefix = commonPrefix(left.left, right.left);
+            String suffix = commonSuffix(left.right, right.right);
+            String in = longestOf(longestCommonSubstring(left.in, right.in), prefix, suffix);
+            if (exact != null) {
+                in = longestOf(in, commonFactor(exact));
+            }
+            return new Must(exact, prefix, suffix, in);
+        }
+
+        throw new Exception("Unknown regex operator");
+    }
+
+    // Longest factor shared by all the strings of a set
+    private static String commonFactor(Set<String> strings) {
+        String factor = null;
+        for (String s : strings) {
+            factor = factor == null ? s : longestCommonSubstring(factor, s);
+        }
+        return factor == null ? "" : factor;
+    }
+
+    private static String longestOf(String... candidates) {
+        String best = "";
+        for (String candidate : candidates) {
+            if (candidate.length() > best.length()) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private static String commonPrefix(String a, String b) {
+        int n = 0;
+        while (n < a.length() && n < b.length() && a.charAt(n) == b.charAt(n)) {
+            n++;
+        }
+        return a.substring(0, n);
+    }
+
+    private static String commonSuffix(String a, String b) {
+        int n = 0;
+        while (n < a.length() && n < b.length() && a.charAt(a.length() - 1 - n) == b.charAt(b.length() - 1 - n)) {
+            n++;
+        }
+        return a.substring(a.length() - n);
+    }
+
+    private static String longestCommonSubstring(String a, String b) {
+        int bestEnd = 0;
+        int bestLength = 0;
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                current[j] = a.charAt(i - 1) == b.charAt(j - 1) ? previous[j - 1] + 1 : 0;
+                if (current[j] > bestLength) {
+                    bestLength = current[j];
+                    bestEnd = i;
+                }
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return a.substring(bestEnd - bestLength, bestEnd);
+    }
+
+    // exact is null when the language is infinite or too large
+    private record Must(Set<String> exact, String left, String right, String in) {
+        static final Must NONE = new Must(null, "", "", "");
+    }
+}
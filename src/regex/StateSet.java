@@ -0,0 +1,33 @@
+package regex;
+
+import java.util.Arrays;
+
+// A set of NFA states as a bitset, with its hash computed once so it can key a HashMap cheaply
+final class StateSet {
+    final long[] bits;
+    private final int hash;
+
+    StateSet(long[] bits) {
+        this.bits = bits;
+        this.hash = Arrays.hashCode(bits);
+    }
+
+    boolean intersects(long[] other) {
+        for (int i = 0; i < bits.length; i++) {
+            if ((bits[i] & other[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof StateSet && hash == ((StateSet) o).hash && Arrays.equals(bits, ((StateSet) o).bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,211 @@
+package search;
+
+import metrics.Metrics;
+import strategy.LineMatcher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Walks the matching lines of a file without reading it line by line.
+// The file is memory-mapped in windows of whole lines and the matcher runs over the raw bytes of a window;
+// line boundaries, line numbers and the line String are only worked out once a match has been found.
+// A scanner can also cover a region of the file starting at a line boundary; line numbers are then relative to it.
+public class MappedLineScanner implements Closeable {
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final LineMatcher matcher;
+    private final long start;
+    private final long end;
+    private final long windowSize;
+    private final Metrics.ScanTimer timer;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int windowLimit;      // end of the last whole line of the window
+    private int position;         // where the next search starts, always the start of a line
+    private int countedUpTo;      // newlines before this offset are counted in newlines
+    private long newlines;        // newlines seen in the file before countedUpTo
+    private int lineStart;
+    private int lineEnd;
+    private boolean countLines = true;
+    private long matches;
+
+    public MappedLineScanner(Path path, LineMatcher matcher) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.ownsChannel = true;
+        this.matcher = matcher;
+        this.start = 0;
+        this.end = channel.size();
+        this.windowSize = WINDOW_SIZE;
+        this.timer = Metrics.startScan(path.toString());
+    }
+
+    // Scans the region [start, end) of path, open as channel, which stays open when the scanner is closed
+    public MappedLineScanner(Path path, FileChannel channel, LineMatcher matcher, long start, long end) {
+        this(path, channel, matcher, start, end, WINDOW_SIZE);
+    }
+
+    // windowSize: bytes mapped at a time, smaller than the default only to test lines across window boundaries
+    MappedLineScanner(Path path, FileChannel channel, LineMatcher matcher, long start, long end, long windowSize) {
+        this.channel = channel;
+        this.ownsChannel = false;
+        this.matcher = matcher;
+        this.start = start;
+        this.windowStart = start;
+        this.end = end;
+        this.windowSize = windowSize;
+        this.timer = Metrics.startScan(path.toString());
+    }
+
+    // Lazy stream of the matching lines of a file: the next match is only searched for when the stream pulls it,
+    // so memory stays flat whatever the number of matches and the first one comes out as soon as it is found.
+    // Closing the stream closes the file.
+    public static Stream<Match> stream(Path path, LineMatcher matcher) throws IOException {
+        MappedLineScanner scanner = new MappedLineScanner(path, matcher);
+        return StreamSupport.stream(scanner.spliterator(), false).onClose(() -> {
+            try {
+                scanner.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // The matches from the current position on
+    public Spliterator<Match> spliterator() {
+        return new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Match> action) {
+                try {
+                    if (!nextMatch()) {
+                        return false;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                action.accept(new Match(lineNumber(), line()));
+                return true;
+            }
+        };
+    }
+
+    // Stops counting newlines, for callers that never ask for line numbers (counting matches, -l, -q)
+    public void skipLineNumbers() {
+        this.countLines = false;
+    }
+
+    // Moves to the next matching line, returns false at the end of the file
+    public boolean nextMatch() throws Exception {
+        while (true) {
+            if (window == null || position >= windowLimit) {
+                if (!mapNextWindow()) {
+                    return false;
+                }
+            }
+            int hit = matcher.findMatchingLine(window, position, windowLimit);
+            if (hit == -1) {
+                countNewlines(windowLimit);
+                position = windowLimit;
+                continue;
+            }
+            lineStart = hit;
+            while (lineStart > position && window.get(lineStart - 1) != '\n') {
+                lineStart--;
+            }
+            lineEnd = hit;
+            while (lineEnd < windowLimit && window.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            countNewlines(lineStart);
+            position = lineEnd + 1;
+            matches++;
+            return true;
+        }
+    }
+
+    // 1-based number of the current matching line
+    public long lineNumber() {
+        return newlines + 1;
+    }
+
+    // Newlines counted so far; once nextMatch has returned false this is the number of lines of the region
+    public long newlineCount() {
+        return newlines;
+    }
+
+    // Current matching line, decoded, without its line terminator
+    public String line() {
+        int length = lineEnd - lineStart;
+        if (length > 0 && window.get(lineEnd - 1) == '\r') {
+            length--;
+        }
+        byte[] bytes = new byte[length];
+        window.get(lineStart, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void countNewlines(int upTo) {
+        if (!countLines) {
+            return;
+        }
+        long count = 0;
+        for (int i = countedUpTo; i < upTo; i++) {
+            if (window.get(i) == '\n') {
+                count++;
+            }
+        }
+        newlines += count;
+        countedUpTo = upTo;
+    }
+
+    private boolean mapNextWindow() throws IOException {
+        if (window != null) {
+            // the last line of the window may have matched, its newline is not counted yet
+            countNewlines(windowLimit);
+            windowStart += windowLimit;
+        }
+        if (windowStart >= end) {
+            return false;
+        }
+        long size = Math.min(windowSize, end - windowStart);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+        windowLimit = (int) size;
+        if (windowStart + size < end) {
+            // stop after the last whole line, the rest goes to the next window
+            while (windowLimit > 0 && window.get(windowLimit - 1) != '\n') {
+                windowLimit--;
+            }
+            if (windowLimit == 0) {
+                throw new IOException("Line longer than " + windowSize + " bytes at offset " + windowStart);
+            }
+        }
+        position = 0;
+        countedUpTo = 0;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // a scan stopped at its first match (-l, -q) only counts the bytes up to it
+        long scanned = window == null ? 0 : Math.min(end, windowStart + position) - start;
+        timer.stop(scanned, countLines ? newlines : 0, matches);
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+}
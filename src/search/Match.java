@@ -0,0 +1,5 @@
+package search;
+
+// A matching line and its 1-based number in the file
+public record Match(long lineNumber, String line) {
+}
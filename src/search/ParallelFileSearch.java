@@ -0,0 +1,203 @@
+package search;
+
+import strategy.LineMatcher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Searches one large file on several cores.
+// The file is cut into chunks that end on a line boundary, every chunk is scanned by its own MappedLineScanner on a
+// ForkJoin pool, and the results are merged in file order with line numbers shifted by the lines of earlier chunks.
+// Chunks are submitted as the results are consumed, a bounded number ahead.
+// Matchers keep no state between calls once built, so every chunk can share the same one.
+public class ParallelFileSearch {
+    private static final long CHUNK_SIZE = 8L << 20;    // small enough that the matches of a few chunks fit in memory
+
+    private final LineMatcher matcher;
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+
+    public ParallelFileSearch(LineMatcher matcher) {
+        this(matcher, ForkJoinPool.commonPool());
+    }
+
+    public ParallelFileSearch(LineMatcher matcher, ForkJoinPool pool) {
+        this(matcher, pool, CHUNK_SIZE);
+    }
+
+    // chunkSize: smaller than the default only to test lines and matches around chunk boundaries
+    ParallelFileSearch(LineMatcher matcher, ForkJoinPool pool, long chunkSize) {
+        this.matcher = matcher;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public List<Match> search(Path path) throws Exception {
+        try (Stream<Match> matches = stream(path)) {
+            return matches.toList();
+        }
+    }
+
+    // Streams the matches in file order. At most twice the parallelism of the pool in chunks are searched ahead of
+    // the consumer, so memory is bounded by a few chunks of matches however large the file and however slowly the
+    // stream is read. Closing the stream cancels the chunks in flight and closes the file.
+    public Stream<Match> stream(Path path) throws IOException {
+        ChunkSpliterator chunks = new ChunkSpliterator(path, FileChannel.open(path, StandardOpenOption.READ));
+        return StreamSupport.stream(chunks, false).onClose(chunks::close);
+    }
+
+    // Number of matching lines, the chunks only count and keep no line
+    public long count(Path path) throws Exception {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            List<ForkJoinTask<Long>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                tasks.add(pool.submit(() -> countChunk(path, channel, start, end)));
+            }
+            long count = 0;
+            for (ForkJoinTask<Long> task : tasks) {
+                count += task.join();
+            }
+            return count;
+        }
+    }
+
+    private long countChunk(Path path, FileChannel channel, long start, long end) throws Exception {
+        try (MappedLineScanner scanner = new MappedLineScanner(path, channel, matcher, start, end)) {
+            scanner.skipLineNumbers();
+            long count = 0;
+            while (scanner.nextMatch()) {
+                count++;
+            }
+            return count;
+        }
+    }
+
+    private ChunkResult scanChunk(Path path, FileChannel channel, long start, long end) throws Exception {
+        List<Match> matches = new ArrayList<>();
+        try (MappedLineScanner scanner = new MappedLineScanner(path, channel, matcher, start, end)) {
+            while (scanner.nextMatch()) {
+                matches.add(new Match(scanner.lineNumber(), scanner.line()));
+            }
+            return new ChunkResult(matches, scanner.newlineCount());
+        }
+    }
+
+    // Chunk boundaries: every chunkSize bytes, pushed forward past the next newline
+    private long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(64 * 1024);
+        long next = chunkSize;
+        while (next < size) {
+            long boundary = nextLineStart(channel, next, probe);
+            if (boundary >= size) {
+                break;
+            }
+            bounds.add(boundary);
+            next = boundary + chunkSize;
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, ByteBuffer probe) throws IOException {
+        long position = from;
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    private record ChunkResult(List<Match> matches, long newlines) {
+    }
+
+    private final class ChunkSpliterator extends Spliterators.AbstractSpliterator<Match> {
+        private final Path path;
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final int maxInFlight = Math.max(2, 2 * pool.getParallelism());
+        private final ArrayDeque<ForkJoinTask<ChunkResult>> inFlight = new ArrayDeque<>();
+        private int nextChunk;
+        private Iterator<Match> current = Collections.emptyIterator();
+        private long currentFirstLine;  // lines of the chunks before the current one
+        private long linesBefore;       // lines of the chunks joined so far
+
+        ChunkSpliterator(Path path, FileChannel channel) throws IOException {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.path = path;
+            this.channel = channel;
+            try {
+                this.bounds = chunkBounds(channel);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Match> action) {
+            while (!current.hasNext()) {
+                while (inFlight.size() < maxInFlight && nextChunk + 1 < bounds.length) {
+                    long start = bounds[nextChunk];
+                    long end = bounds[++nextChunk];
+                    inFlight.add(pool.submit(() -> scanChunk(path, channel, start, end)));
+                }
+                if (inFlight.isEmpty()) {
+                    return false;
+                }
+                ChunkResult result = inFlight.poll().join();
+                current = result.matches.iterator();
+                currentFirstLine = linesBefore;
+                linesBefore += result.newlines;
+            }
+            Match match = current.next();
+            action.accept(new Match(currentFirstLine + match.lineNumber(), match.line()));
+            return true;
+        }
+
+        void close() {
+            for (ForkJoinTask<ChunkResult> task : inFlight) {
+                task.cancel(true);
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
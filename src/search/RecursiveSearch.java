@@ -0,0 +1,124 @@
+package search;
+
+import strategy.LineMatcher;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+// egrep -r: searches every regular file below a directory, one virtual thread per file.
+// All threads share the same compiled matcher; a semaphore bounds how many files are open at once.
+// The lines of a file are written out together, and none is kept past a small per-file buffer.
+public class RecursiveSearch {
+    public static final int DEFAULT_MAX_OPEN_FILES = 64;
+    public static final int DEFAULT_FILE_BUFFER = 1 << 16;   // characters
+
+    private final LineMatcher matcher;
+    private final Semaphore openFiles;
+    private final int fileBuffer;
+
+    public RecursiveSearch(LineMatcher matcher) {
+        this(matcher, DEFAULT_MAX_OPEN_FILES);
+    }
+
+    public RecursiveSearch(LineMatcher matcher, int maxOpenFiles) {
+        this(matcher, maxOpenFiles, DEFAULT_FILE_BUFFER);
+    }
+
+    // fileBuffer: characters of output a file gathers before taking the output, small only to test the overflow
+    RecursiveSearch(LineMatcher matcher, int maxOpenFiles, int fileBuffer) {
+        this.matcher = matcher;
+        this.openFiles = new Semaphore(maxOpenFiles);
+        this.fileBuffer = fileBuffer;
+    }
+
+    // Writes the matching lines of every file to out, as format turns them into text, the lines of a file one after
+    // the other. They are gathered in a buffer of the file's own while it is scanned, so files are scanned side by
+    // side, and written under the output lock once the file is done. A file whose lines outgrow the buffer takes
+    // the lock there and writes the rest of them straight to out: memory stays bounded whatever the matches.
+    public void search(Path root, PrintStream out, LineFormat format) throws IOException {
+        // a lock rather than synchronized: virtual threads writing to out under it can still unmount
+        ReentrantLock outputLock = new ReentrantLock();
+        forEachFile(root, (file, scanner) -> {
+            StringBuilder buffer = new StringBuilder();
+            try {
+                while (scanner.nextMatch()) {
+                    buffer.append(format.format(file, scanner.lineNumber(), scanner.line())).append(System.lineSeparator());
+                    if (buffer.length() >= fileBuffer) {
+                        if (!outputLock.isHeldByCurrentThread()) {
+                            outputLock.lock();
+                        }
+                        out.append(buffer);
+                        buffer.setLength(0);
+                    }
+                }
+                if (!buffer.isEmpty()) {
+                    if (!outputLock.isHeldByCurrentThread()) {
+                        outputLock.lock();
+                    }
+                    out.append(buffer);
+                }
+            } finally {
+                if (outputLock.isHeldByCurrentThread()) {
+                    outputLock.unlock();
+                }
+            }
+        });
+    }
+
+    // Runs scan over a scanner of every file and hands its result to output, never from two threads at the same
+    // time; files whose scan returns null are skipped
+    public <T> void forEachFile(Path root, FileScan<T> scan, BiConsumer<Path, T> output) throws IOException {
+        Object outputLock = new Object();
+        forEachFile(root, (file, scanner) -> {
+            T result = scan.scan(scanner);
+            if (result != null) {
+                synchronized (outputLock) {
+                    output.accept(file, result);
+                }
+            }
+        });
+    }
+
+    private void forEachFile(Path root, FileTask task) throws IOException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile).forEach(file -> executor.submit(() -> {
+                scanFile(file, task);
+                return null;
+            }));
+        }
+    }
+
+    private void scanFile(Path file, FileTask task) throws InterruptedException {
+        openFiles.acquire();
+        try (MappedLineScanner scanner = new MappedLineScanner(file, matcher)) {
+            task.run(file, scanner);
+        } catch (Exception e) {
+            System.err.println("Error: " + file + ": " + e.getMessage());
+        } finally {
+            openFiles.release();
+        }
+    }
+
+    // What to work out from the matches of one file
+    public interface FileScan<T> {
+        T scan(MappedLineScanner scanner) throws Exception;
+    }
+
+    // The text written for a matching line
+    public interface LineFormat {
+        String format(Path file, long lineNumber, String line);
+    }
+
+    private interface FileTask {
+        void run(Path file, MappedLineScanner scanner) throws Exception;
+    }
+}
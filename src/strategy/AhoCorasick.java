@@ -0,0 +1,129 @@
+package strategy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Aho-Corasick automaton for an alternation of literals, built over their UTF-8 bytes.
+// The trie and its failure links are folded into a dense goto table of 256 columns, so scanning costs exactly
+// one table load per byte, and building is linear in the total length of the literals instead of going through
+// Thompson and subset construction. No literal holds a line break, hence '\n' always leads back to the root.
+public class AhoCorasick implements LineMatcher {
+    private static final int ROOT = 0;
+
+    private final List<String> literals;
+    private final int stateCount;
+    private final int[] table;          // table[state * 256 + byte] -> next state
+    private final boolean[] output;     // some literal ends at this state
+
+    public AhoCorasick(List<String> literals) throws Exception {
+        this.literals = literals;
+        List<int[]> trie = new ArrayList<>();
+        List<Boolean> ends = new ArrayList<>();
+        trie.add(newNode());
+        ends.add(false);
+        for (String literal : literals) {
+            if (literal.indexOf('\n') >= 0 || literal.indexOf('\r') >= 0) {
+                throw new Exception("Aho-Corasick literals cannot hold a line break");
+            }
+            int state = ROOT;
+            for (byte b : literal.getBytes(StandardCharsets.UTF_8)) {
+                int next = trie.get(state)[b & 0xFF];
+                if (next == -1) {
+                    next = trie.size();
+                    trie.get(state)[b & 0xFF] = next;
+                    trie.add(newNode());
+                    ends.add(false);
+                }
+                state = next;
+            }
+            ends.set(state, true);
+        }
+
+        this.stateCount = trie.size();
+        this.table = new int[stateCount * 256];
+        this.output = new boolean[stateCount];
+        int[] failure = new int[stateCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int b = 0; b < 256; b++) {
+            int child = trie.get(ROOT)[b];
+            if (child == -1) {
+                table[ROOT * 256 + b] = ROOT;
+            } else {
+                table[ROOT * 256 + b] = child;
+                failure[child] = ROOT;
+                queue.add(child);
+            }
+        }
+        output[ROOT] = ends.get(ROOT);
+        // Breadth first, so the failure state of every node already has its complete row
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            output[state] = ends.get(state) || output[failure[state]];
+            for (int b = 0; b < 256; b++) {
+                int child = trie.get(state)[b];
+                if (child == -1) {
+                    table[state * 256 + b] = table[failure[state] * 256 + b];
+                } else {
+                    table[state * 256 + b] = child;
+                    failure[child] = table[failure[state] * 256 + b];
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    private static int[] newNode() {
+        int[] children = new int[256];
+        Arrays.fill(children, -1);
+        return children;
+    }
+
+    @Override
+    public boolean matchLine(String line, boolean debugMode) throws Exception {
+        if (output[ROOT]) {
+            return true;
+        }
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        int state = ROOT;
+        for (int i = 0; i < bytes.length; i++) {
+            state = table[state * 256 + (bytes[i] & 0xFF)];
+            if (output[state]) {
+                if (debugMode) {
+                    System.out.println("Match found at byte " + i);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int findMatchingLine(ByteBuffer buffer, int from, int to) throws Exception {
+        if (output[ROOT]) {
+            return from < to ? from : -1;
+        }
+        int state = ROOT;
+        for (int i = from; i < to; i++) {
+            state = table[state * 256 + (buffer.get(i) & 0xFF)];
+            if (output[state]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return (long) table.length * Integer.BYTES + output.length;
+    }
+
+    @Override
+    public void debug() throws Exception {
+        System.out.println("Aho-Corasick for " + literals.size() + " literals");
+        System.out.println("States: " + stateCount + ", goto table: " + table.length * Integer.BYTES + " bytes");
+    }
+}
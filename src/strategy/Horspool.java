@@ -0,0 +1,86 @@
+package strategy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Boyer-Moore-Horspool search for a literal pattern. The window is compared right to left, and on a mismatch it
+// jumps by the distance from the last occurrence of its last character to the end of the pattern: up to m
+// characters per step, so long literals are found without looking at most of the text.
+public class Horspool implements LineMatcher {
+    private final String pattern;
+    private final byte[] patternBytes;
+    private final int[] byteShift = new int[256];
+    private final int[] charShift = new int[256];   // by the low byte of a char, colliding chars keep the smaller shift
+
+    public Horspool(String pattern) {
+        this.pattern = pattern;
+        this.patternBytes = pattern.getBytes(StandardCharsets.UTF_8);
+        int m = pattern.length();
+        Arrays.fill(charShift, m);
+        for (int i = 0; i < m - 1; i++) {
+            charShift[pattern.charAt(i) & 0xFF] = m - 1 - i;
+        }
+        int length = patternBytes.length;
+        Arrays.fill(byteShift, length);
+        for (int i = 0; i < length - 1; i++) {
+            byteShift[patternBytes[i] & 0xFF] = length - 1 - i;
+        }
+    }
+
+    @Override
+    public boolean matchLine(String line, boolean debugMode) throws Exception {
+        int m = pattern.length();
+        if (m == 0) {
+            return true;
+        }
+        int last = line.length() - m;
+        for (int i = 0; i <= last; i += charShift[line.charAt(i + m - 1) & 0xFF]) {
+            int j = m - 1;
+            while (j >= 0 && line.charAt(i + j) == pattern.charAt(j)) {
+                j--;
+            }
+            if (j < 0) {
+                if (debugMode) {
+                    System.out.println("Match found at position " + i);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int findMatchingLine(ByteBuffer buffer, int from, int to) throws Exception {
+        if (pattern.isEmpty() || pattern.indexOf('\n') >= 0 || pattern.indexOf('\r') >= 0) {
+            return LineMatcher.super.findMatchingLine(buffer, from, to);
+        }
+        // the pattern holds no line break, so an occurrence always lies inside a single line
+        return indexOf(buffer, from, to);
+    }
+
+    // First occurrence of the pattern bytes in buffer[from, to), or -1
+    public int indexOf(ByteBuffer buffer, int from, int to) {
+        int m = patternBytes.length;
+        byte tail = patternBytes[m - 1];
+        for (int i = from; i <= to - m; ) {
+            byte b = buffer.get(i + m - 1);
+            if (b == tail) {
+                int j = m - 2;
+                while (j >= 0 && buffer.get(i + j) == patternBytes[j]) {
+                    j--;
+                }
+                if (j < 0) {
+                    return i;
+                }
+            }
+            i += byteShift[b & 0xFF];
+        }
+        return -1;
+    }
+
+    @Override
+    public void debug() throws Exception {
+        System.out.println("Boyer-Moore-Horspool for literal: " + pattern);
+    }
+}
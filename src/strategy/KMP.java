@@ -6,6 +6,7 @@ import java.util.Map;
 public class KMP implements LineMatcher {
     private final Map<String, int[]> carryOver;
     private String pattern;
+    private int[] patternCarryOver;   // carryOver of the current pattern, kept out of the map on the hot path
 
 
     public KMP(String pattern) {
@@ -49,6 +50,7 @@ public class KMP implements LineMatcher {
             i++;
         }
         this.carryOver.put(pattern, lps);
+        this.patternCarryOver = lps;
     }
 
     public void storePattern(String pattern) {
@@ -56,6 +58,7 @@ public class KMP implements LineMatcher {
         if (!this.carryOver.containsKey(pattern)) {
             computeCarryOver(pattern);
         }
+        this.patternCarryOver = this.carryOver.get(pattern);
     }
 
     @Override
@@ -75,7 +78,12 @@ public class KMP implements LineMatcher {
                 if (j == 0) {
                     i++;
                 } else {
-                    j = this.carryOver.get(pattern)[j];
+                    j = patternCarryOver[j];
+                    if (j == -1) {
+                        // the optimized carry-over proved that no prefix can end on line[i]
+                        i++;
+                        j = 0;
+                    }
                 }
             }
         }
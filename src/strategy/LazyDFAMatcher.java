@@ -0,0 +1,67 @@
+package strategy;
+
+import regex.IntNFA;
+import regex.LazyDFA;
+import regex.RegExParser;
+import regex.RegExTree;
+
+import java.nio.ByteBuffer;
+
+// Matches with a DFA built lazily from the Thompson NFA, for patterns whose full DFA would be too large to build
+public class LazyDFAMatcher implements LineMatcher {
+    private final String regex;
+    private final LazyDFA lazyDFA;
+    private final int nfaStates;
+
+    public LazyDFAMatcher(String regex) throws Exception {
+        this(regex, new RegExParser(regex).parse());
+    }
+
+    public LazyDFAMatcher(String regex, RegExTree regexTree) throws Exception {
+        this(regex, regexTree, LazyDFA.DEFAULT_CACHE_STATES);
+    }
+
+    public LazyDFAMatcher(String regex, RegExTree regexTree, int cacheStates) throws Exception {
+        this.regex = regex;
+        IntNFA nfa = IntNFA.fromRegexTree(regexTree);
+        this.nfaStates = nfa.stateCount;
+        this.lazyDFA = new LazyDFA(nfa, cacheStates);
+    }
+
+    @Override
+    public boolean matchLine(String line, boolean debugMode) throws Exception {
+        int position = lazyDFA.find(line);
+        if (position == -1) {
+            return false;
+        }
+        if (debugMode) {
+            System.out.println("Match found at position " + position);
+        }
+        return true;
+    }
+
+    @Override
+    public int findMatchingLine(ByteBuffer buffer, int from, int to) throws Exception {
+        if (!lazyDFA.supportsBytes()) {
+            return LineMatcher.super.findMatchingLine(buffer, from, to);
+        }
+        return lazyDFA.find(buffer, from, to);
+    }
+
+    @Override
+    public long memoryBytes() {
+        return lazyDFA.memoryBytes();
+    }
+
+    @Override
+    public void debug() throws Exception {
+        System.out.println("Lazy DFA for regex: " + regex);
+        System.out.println("NFA built. States: " + nfaStates);
+        System.out.println("DFA cache: " + lazyDFA.cacheStates() + " states, flushed " + lazyDFA.flushes() + " times, "
+                + lazyDFA.cachesCreated() + " caches built");
+    }
+
+    long cachesCreated() {
+        return lazyDFA.cachesCreated();
+    }
+}
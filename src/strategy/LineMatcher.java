@@ -1,7 +1,42 @@
 package strategy;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 public interface LineMatcher {
     boolean matchLine(String line, boolean debugMode) throws Exception;
 
     void debug() throws Exception;
+
+    // Approximate size of the compiled tables in bytes, used to weigh MatcherCache entries
+    default long memoryBytes() {
+        return 1024;
+    }
+
+    // Scans the UTF-8 lines held in buffer[from, to), from being the start of a line, and returns an offset
+    // inside the first matching line, or -1.
+    // This default decodes each line and calls matchLine; engines able to run over raw bytes override it.
+    default int findMatchingLine(ByteBuffer buffer, int from, int to) throws Exception {
+        byte[] bytes = new byte[256];
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int length = lineEnd - lineStart;
+            if (length > 0 && buffer.get(lineEnd - 1) == '\r') {
+                length--;
+            }
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            buffer.get(lineStart, bytes, 0, length);
+            if (matchLine(new String(bytes, 0, length, StandardCharsets.UTF_8), false)) {
+                return lineStart;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return -1;
+    }
 }
@@ -0,0 +1,90 @@
+package strategy;
+
+import metrics.Metrics;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Bounded cache of compiled matchers keyed by regex and algorithm type, safe to share between threads.
+// Entries are weighted by the memory of their tables and the least recently used ones are evicted once the total
+// goes over the limit. A miss compiles outside the lock, so a slow compile never holds up hits on other patterns;
+// two threads missing the same key at once may both compile it, and the first one stored wins.
+public class MatcherCache {
+    public static final long DEFAULT_MAX_WEIGHT = 64L << 20;   // bytes of compiled tables
+
+    private final long maxWeight;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // access order
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public MatcherCache() {
+        this(DEFAULT_MAX_WEIGHT);
+    }
+
+    public MatcherCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    public LineMatcher get(String regex, String algoType) throws Exception {
+        Key key = new Key(regex, algoType.toLowerCase());
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                Metrics.cacheLookup(true);
+                return entry.matcher;
+            }
+            misses++;
+            Metrics.cacheLookup(false);
+        }
+
+        LineMatcher matcher = Matchers.create(regex, algoType);
+        long matcherWeight = matcher.memoryBytes();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                return entry.matcher;
+            }
+            if (matcherWeight <= maxWeight) {
+                entries.put(key, new Entry(matcher, matcherWeight));
+                weight += matcherWeight;
+                evict();
+            }
+        }
+        return matcher;
+    }
+
+    // Drops the least recently used entries until the total weight fits
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries.size(), weight);
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size, long weight) {
+        public double hitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+    }
+
+    private record Key(String regex, String algoType) {
+    }
+
+    private record Entry(LineMatcher matcher, long weight) {
+    }
+}
@@ -0,0 +1,62 @@
+package strategy;
+
+import metrics.Metrics;
+import regex.RegExParser;
+import regex.RegExTree;
+import regex.RequiredLiterals;
+
+import java.util.List;
+
+// Engine selection: the default algorithm type lets QueryPlanner choose, any other builds the LineMatcher it asks
+// for, falling back to the DFA when the requested engine cannot handle the pattern
+public class Matchers {
+
+    private Matchers() {
+    }
+
+    public static LineMatcher create(String regex, String algoType) throws Exception {
+        // a syntax error surfaces here, with its position, whatever the engine
+        Metrics.PhaseTimer timer = Metrics.start(Metrics.Phase.PARSE, regex);
+        RegExTree regexTree = new RegExParser(regex).parse();
+        timer.stop(0);
+        if (algoType.equalsIgnoreCase("default")) {
+            return QueryPlanner.plan(regex, regexTree).build(regexTree);
+        }
+
+        List<String> alternatives = regexTree.literalAlternatives();
+        boolean literals = alternatives != null && !QueryPlanner.hasLineBreak(alternatives);
+        boolean literal = literals && alternatives.size() == 1;
+        LineMatcher matcher;
+        if (algoType.equalsIgnoreCase("dfa")) {
+            matcher = dfa(regex, regexTree);
+        } else if (algoType.equalsIgnoreCase("shiftand")) {
+            matcher = new ShiftAnd(regex, regexTree);
+        } else if (algoType.equalsIgnoreCase("bmh")) {
+            matcher = literal ? new Horspool(alternatives.get(0)) : dfa(regex, regexTree);
+        } else if (algoType.equalsIgnoreCase("aho")) {
+            matcher = literals ? new AhoCorasick(alternatives) : dfa(regex, regexTree);
+        } else if (algoType.equalsIgnoreCase("kmp")) {
+            matcher = literal ? new KMP(alternatives.get(0)) : dfa(regex, regexTree);
+        } else if (algoType.equalsIgnoreCase("lazy")) {
+            matcher = new LazyDFAMatcher(regex, regexTree);
+        } else if (algoType.equalsIgnoreCase("nfa")) {
+            matcher = new PikeVM(regex, regexTree);
+        } else {
+            throw new Exception("Invalid algorithm type: " + algoType);
+        }
+        if (!(matcher instanceof KMP) && !(matcher instanceof Horspool) && !(matcher instanceof AhoCorasick)) {
+            // Only the lines holding a literal every match must contain reach the automaton
+            String required = RequiredLiterals.longest(regexTree);
+            if (!required.isEmpty()) {
+                matcher = new PrefilteredMatcher(required, matcher);
+            }
+        }
+        return matcher;
+    }
+
+    private static Uhlmann dfa(String regex, RegExTree regexTree) throws Exception {
+        Uhlmann uhlmann = new Uhlmann(regex, regexTree);
+        uhlmann.buildAutomaton();
+        return uhlmann;
+    }
+}
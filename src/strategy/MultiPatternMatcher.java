@@ -0,0 +1,74 @@
+package strategy;
+
+import regex.MultiPatternDFA;
+import regex.RegExParser;
+import regex.RegExTree;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+// Matches a line when any of several patterns does, with one scan for all of them; matchingPatterns then
+// tells which ones matched a line. Pattern ids are the positions in the list given to the constructor.
+public class MultiPatternMatcher implements LineMatcher {
+    private final List<String> regexes;
+    private final MultiPatternDFA dfa;
+
+    public MultiPatternMatcher(List<String> regexes) throws Exception {
+        this.regexes = regexes;
+        List<RegExTree> trees = new ArrayList<>();
+        for (String regex : regexes) {
+            trees.add(new RegExParser(regex).parse());
+        }
+        this.dfa = new MultiPatternDFA(trees);
+    }
+
+    @Override
+    public boolean matchLine(String line, boolean debugMode) throws Exception {
+        if (dfa.matchesEmpty()) {
+            return true;
+        }
+        int position = dfa.find(line);
+        if (position == -1) {
+            return false;
+        }
+        if (debugMode) {
+            System.out.println("Match found at position " + position + " for patterns " + matchingPatterns(line));
+        }
+        return true;
+    }
+
+    @Override
+    public int findMatchingLine(ByteBuffer buffer, int from, int to) throws Exception {
+        if (!dfa.supportsBytes()) {
+            return LineMatcher.super.findMatchingLine(buffer, from, to);
+        }
+        if (dfa.matchesEmpty()) {
+            return from < to ? from : -1;
+        }
+        return dfa.find(buffer, from, to);
+    }
+
+    // Ids of the patterns matching the line
+    public BitSet matchingPatterns(String line) {
+        long[] matched = new long[(dfa.patternCount() + 63) >>> 6];
+        dfa.matchingPatterns(line, matched);
+        return BitSet.valueOf(matched);
+    }
+
+    public List<String> regexes() {
+        return regexes;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return dfa.memoryBytes();
+    }
+
+    @Override
+    public void debug() throws Exception {
+        System.out.println("Union DFA for " + regexes.size() + " patterns: " + regexes);
+        System.out.println("States: " + dfa.stateCount() + ", table: " + dfa.tableBytes() + " bytes");
+    }
+}
@@ -0,0 +1,218 @@
+package strategy;
+
+import regex.Automaton;
+import regex.CompiledDFA;
+import regex.IntNFA;
+import regex.RegExParser;
+import regex.RegExTree;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+// Simulates the Thompson NFA directly, without determinizing it (Pike VM / Thompson simulation).
+// The active states are kept in sparse sets, so every character costs at most one visit per NFA state:
+// O(n * m) in the worst case and no exponential compile step, which makes it safe for untrusted patterns.
+// The sets are checked out of a pool holding one per processor for each scan, rather than kept per thread: a
+// recursive search runs every file on a new virtual thread, which would otherwise allocate them for every file.
+public class PikeVM implements LineMatcher {
+    private static final int NONE = -2;          // no symbol transition
+    private static final int NON_ASCII = -3;     // a non-ASCII character seen on the byte path, only DOT matches it
+    private static final int POOLED_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private final String regex;
+    private final int stateCount;
+    private final int startState;
+    private final int[][] epsilonTargets;
+    private final int[] symbol;                  // label of the symbol transition of a state, or NONE
+    private final int[] symbolTarget;
+    private final boolean[] accepting;
+    private final boolean asciiLiterals;
+    private final ArrayBlockingQueue<Threads> threads = new ArrayBlockingQueue<>(POOLED_THREADS); // idle sets
+    private final LongAdder threadsCreated = new LongAdder();
+
+    public PikeVM(String regex) throws Exception {
+        this(regex, new RegExParser(regex).parse());
+    }
+
+    public PikeVM(String regex, RegExTree regexTree) throws Exception {
+        this.regex = regex;
+        IntNFA nfa = IntNFA.fromRegexTree(regexTree);
+
+        this.stateCount = nfa.stateCount;
+        this.startState = nfa.startState;
+        this.epsilonTargets = new int[stateCount][];
+        this.symbol = new int[stateCount];
+        this.symbolTarget = new int[stateCount];
+        this.accepting = new boolean[stateCount];
+        boolean ascii = true;
+        for (int i = 0; i < stateCount; i++) {
+            int firstEpsilon = nfa.epsilonEdgesStart(i);
+            epsilonTargets[i] = new int[nfa.epsilonEdgesEnd(i) - firstEpsilon];
+            for (int j = 0; j < epsilonTargets[i].length; j++) {
+                epsilonTargets[i][j] = nfa.epsilonTarget(firstEpsilon + j);
+            }
+            symbol[i] = NONE;
+            for (int edge = nfa.symbolEdgesStart(i); edge < nfa.symbolEdgesEnd(i); edge++) {
+                int label = nfa.symbolLabel(edge);
+                symbol[i] = label;
+                symbolTarget[i] = nfa.symbolTarget(edge);
+                ascii &= label == Automaton.DOT_SYMBOL || (label < 0x80 && label != '\n' && label != '\r');
+            }
+            accepting[i] = nfa.isAccepting(i);
+        }
+        this.asciiLiterals = ascii;
+    }
+
+    @Override
+    public boolean matchLine(String line, boolean debugMode) throws Exception {
+        Threads t = checkOut();
+        try {
+            if (t.start()) {
+                return true;
+            }
+            for (int i = 0; i < line.length(); i++) {
+                if (t.step(line.charAt(i))) {
+                    if (debugMode) {
+                        System.out.println("Match found at position " + i);
+                    }
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            threads.offer(t);
+        }
+    }
+
+    @Override
+    public int findMatchingLine(ByteBuffer buffer, int from, int to) throws Exception {
+        if (!asciiLiterals) {
+            return LineMatcher.super.findMatchingLine(buffer, from, to);
+        }
+        Threads t = checkOut();
+        try {
+            if (t.start()) {
+                return from;
+            }
+            for (int i = from; i < to; i++) {
+                int b = buffer.get(i) & 0xFF;
+                if (b == '\n') {
+                    if (t.start()) {
+                        return i;
+                    }
+                } else if (b < 0x80) {
+                    if (t.step(b) && !CompiledDFA.endsLine(buffer, i, to)) {
+                        return i;
+                    }
+                } else if (b >= 0xC0) {
+                    // a lead byte stands for its whole character, continuation bytes are skipped
+                    if (t.step(NON_ASCII)) {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        } finally {
+            threads.offer(t);
+        }
+    }
+
+    // Idle sets from the pool, or new ones when every pooled set is in use; offer drops them if the pool is full
+    private Threads checkOut() {
+        Threads t = threads.poll();
+        if (t == null) {
+            threadsCreated.increment();
+            t = new Threads();
+        }
+        return t;
+    }
+
+    // Number of state sets built; past the pool size only when more scans than that ran at the same time
+    long threadsCreated() {
+        return threadsCreated.sum();
+    }
+
+    // Active states of one scan, as two sparse sets swapped at every character
+    private final class Threads {
+        private SparseSet current = new SparseSet(stateCount);
+        private SparseSet next = new SparseSet(stateCount);
+        private final int[] stack = new int[stateCount];
+
+        // Resets to the start of a line, returns true if the empty string matches
+        boolean start() {
+            current.clear();
+            return add(current, startState);
+        }
+
+        // Consumes one character, a new match attempt starting right after it; returns true on a match
+        boolean step(int c) {
+            next.clear();
+            boolean matched = false;
+            for (int i = 0; i < current.size; i++) {
+                int state = current.dense[i];
+                int label = symbol[state];
+                if (label == c || label == Automaton.DOT_SYMBOL) {
+                    matched |= add(next, symbolTarget[state]);
+                }
+            }
+            matched |= add(next, startState);
+            SparseSet swap = current;
+            current = next;
+            next = swap;
+            return matched;
+        }
+
+        // Adds a state and its epsilon closure, returns true if an accepting state was added
+        private boolean add(SparseSet set, int state) {
+            boolean matched = false;
+            int top = 0;
+            if (set.add(state)) {
+                stack[top++] = state;
+            }
+            while (top > 0) {
+                int s = stack[--top];
+                matched |= accepting[s];
+                for (int to : epsilonTargets[s]) {
+                    if (set.add(to)) {
+                        stack[top++] = to;
+                    }
+                }
+            }
+            return matched;
+        }
+    }
+
+    // Sparse set of Briggs and Torczon: constant time add, membership and clear
+    private static final class SparseSet {
+        final int[] dense;
+        final int[] sparse;
+        int size;
+
+        SparseSet(int capacity) {
+            dense = new int[capacity];
+            sparse = new int[capacity];
+        }
+
+        boolean add(int value) {
+            int index = sparse[value];
+            if (index < size && dense[index] == value) {
+                return false;
+            }
+            sparse[value] = size;
+            dense[size++] = value;
+            return true;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    @Override
+    public void debug() throws Exception {
+        System.out.println("NFA simulation for regex: " + regex);
+        System.out.println("NFA built. States: " + stateCount);
+        System.out.println("State sets built: " + threadsCreated.sum());
+    }
+}
@@ -0,0 +1,58 @@
+package strategy;
+
+import java.nio.ByteBuffer;
+
+// Runs a Horspool search for a literal every match must contain, and the wrapped matcher only on the lines
+// where the literal occurs. Most lines of a text miss the literal and never reach the automaton.
+public class PrefilteredMatcher implements LineMatcher {
+    private final String literal;
+    private final Horspool search;
+    private final LineMatcher matcher;
+
+    public PrefilteredMatcher(String literal, LineMatcher matcher) {
+        this.literal = literal;
+        this.search = new Horspool(literal);
+        this.matcher = matcher;
+    }
+
+    @Override
+    public boolean matchLine(String line, boolean debugMode) throws Exception {
+        return line.contains(literal) && matcher.matchLine(line, debugMode);
+    }
+
+    @Override
+    public int findMatchingLine(ByteBuffer buffer, int from, int to) throws Exception {
+        int position = from;
+        while (position < to) {
+            int hit = search.indexOf(buffer, position, to);
+            if (hit == -1) {
+                return -1;
+            }
+            int lineStart = hit;
+            while (lineStart > position && buffer.get(lineStart - 1) != '\n') {
+                lineStart--;
+            }
+            int lineEnd = hit;
+            while (lineEnd < to && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int found = matcher.findMatchingLine(buffer, lineStart, lineEnd);
+            if (found != -1) {
+                return found;
+            }
+            position = lineEnd + 1;
+        }
+        return -1;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return matcher.memoryBytes() + search.memoryBytes();
+    }
+
+    @Override
+    public void debug() throws Exception {
+        System.out.println("Prefilter on required literal: " + literal);
+        matcher.debug();
+    }
+}
@@ -0,0 +1,118 @@
+package strategy;
+
+import regex.Glushkov;
+import regex.RegExParser;
+import regex.RegExTree;
+import regex.RequiredLiterals;
+
+import java.util.List;
+
+// Picks the engine for a pattern from its parsed tree, so that the fastest one applies without naming it:
+// a plain literal gets Horspool skips, an alternation of literals one Aho-Corasick pass, a pattern of at most
+// 64 positions the bit-parallel Shift-And, a larger one the full DFA, and one too large for a DFA to be built
+// safely the lazy DFA, whose cache bounds the memory. Automata behind a literal every match must contain are
+// only run on the lines holding that literal.
+public class QueryPlanner {
+    // Past this many positions the DFA is not even tried, each of its states holding a set of positions
+    public static final int MAX_DFA_POSITIONS = 512;
+    // The position count does not bound the states, subset construction being exponential in the worst case:
+    // (a|b)*a(a|b)^n has 67 positions for n = 32 and 2^33 states. The DFA is built while planning and dropped
+    // for the lazy DFA once it passes this many states (a few MB of table for a pattern of a few dozen classes)
+    public static final int MAX_DFA_STATES = 1 << 16;
+
+    private QueryPlanner() {
+    }
+
+    public enum Engine {
+        LITERAL("Horspool literal search"),
+        MULTI_LITERAL("Aho-Corasick multi-literal search"),
+        SHIFT_AND("Shift-And bit-parallel NFA"),
+        DFA("minimized DFA"),
+        LAZY_DFA("lazy DFA");
+
+        private final String description;
+
+        Engine(String description) {
+            this.description = description;
+        }
+
+        public String description() {
+            return description;
+        }
+    }
+
+    // engine and prefilter literal ("" for none) chosen for a pattern, and why; dfa is the DFA built while
+    // planning for engine DFA, null for the others
+    public record Plan(String regex, Engine engine, String prefilter, int positions, String reason, Uhlmann dfa) {
+
+        Plan(String regex, Engine engine, String prefilter, int positions, String reason) {
+            this(regex, engine, prefilter, positions, reason, null);
+        }
+
+        public LineMatcher build(RegExTree regexTree) throws Exception {
+            LineMatcher matcher = switch (engine) {
+                case LITERAL -> new Horspool(regexTree.literalAlternatives().get(0));
+                case MULTI_LITERAL -> new AhoCorasick(regexTree.literalAlternatives());
+                case SHIFT_AND -> new ShiftAnd(regex, regexTree);
+                case DFA -> dfa;
+                case LAZY_DFA -> new LazyDFAMatcher(regex, regexTree);
+            };
+            return prefilter.isEmpty() ? matcher : new PrefilteredMatcher(prefilter, matcher);
+        }
+
+        public String explain() {
+            String explanation = "Plan for " + regex + ": " + engine.description() + " (" + positions + " positions)\n"
+                    + "  because " + reason;
+            if (!prefilter.isEmpty()) {
+                explanation += "\n  prefiltered on \"" + prefilter + "\", which every match contains";
+            }
+            return explanation;
+        }
+    }
+
+    public static Plan plan(String regex) throws Exception {
+        return plan(regex, new RegExParser(regex).parse());
+    }
+
+    public static Plan plan(String regex, RegExTree regexTree) throws Exception {
+        int positions = Glushkov.positionCount(regexTree);
+        List<String> alternatives = regexTree.literalAlternatives();
+        if (alternatives != null && alternatives.size() == 1 && !hasLineBreak(alternatives)) {
+            return new Plan(regex, Engine.LITERAL, "", positions,
+                    "the pattern is a plain string, Horspool skips over most of the text");
+        }
+        if (alternatives != null && !hasLineBreak(alternatives)) {
+            return new Plan(regex, Engine.MULTI_LITERAL, "", positions,
+                    "the pattern is an alternation of " + alternatives.size()
+                            + " plain strings, found in one pass whatever their number");
+        }
+
+        String prefilter = RequiredLiterals.longest(regexTree);
+        if (positions <= ShiftAnd.MAX_POSITIONS) {
+            return new Plan(regex, Engine.SHIFT_AND, prefilter, positions,
+                    "the position set fits in one 64-bit word, nothing to determinize");
+        }
+        if (positions > MAX_DFA_POSITIONS) {
+            return new Plan(regex, Engine.LAZY_DFA, prefilter, positions,
+                    "more than " + MAX_DFA_POSITIONS + " positions, the full DFA could be too large; "
+                            + "the lazy DFA only builds the states the text reaches");
+        }
+        Uhlmann dfa = new Uhlmann(regex, regexTree);
+        if (!dfa.buildAutomaton(MAX_DFA_STATES)) {
+            return new Plan(regex, Engine.LAZY_DFA, prefilter, positions,
+                    "the full DFA passed " + MAX_DFA_STATES + " states; "
+                            + "the lazy DFA only builds the states the text reaches");
+        }
+        return new Plan(regex, Engine.DFA, prefilter, positions,
+                "more than " + ShiftAnd.MAX_POSITIONS + " positions, the DFA reads a character per table load", dfa);
+    }
+
+    static boolean hasLineBreak(List<String> literals) {
+        for (String literal : literals) {
+            if (literal.indexOf('\n') >= 0 || literal.indexOf('\r') >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,154 @@
+package strategy;
+
+import regex.Automaton;
+import regex.CompiledDFA;
+import regex.Glushkov;
+import regex.RegExParser;
+import regex.RegExTree;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+// Bit-parallel Shift-And over the Glushkov position automaton, for patterns of at most 64 positions.
+// The state is one long, bit p being set when position p has just been read. Reading c computes
+// D = (first | follow(D)) & B[c], where follow(D) is looked up one byte of D at a time in precomputed tables:
+// a pattern of m positions costs ceil(m / 8) table loads per character and nothing to determinize.
+public class ShiftAnd implements LineMatcher {
+    public static final int MAX_POSITIONS = Long.SIZE;
+
+    private final String regex;
+    private final int positions;
+    private final boolean nullable;
+    private final long first;
+    private final long last;
+    private final long[][] followTable;       // [byte of D][value of that byte] -> union of the follow sets
+    private final long[] asciiMask = new long[128];
+    private final long dotMask;               // positions matching any character
+    private final Map<Integer, Long> otherMasks = new HashMap<>(); // non-ASCII literals
+
+    public ShiftAnd(String regex) throws Exception {
+        this(regex, new RegExParser(regex).parse());
+    }
+
+    public ShiftAnd(String regex, RegExTree regexTree) throws Exception {
+        this.regex = regex;
+        Glushkov glushkov = Glushkov.fromRegexTree(regexTree);
+        this.positions = glushkov.size();
+        if (positions > MAX_POSITIONS) {
+            throw new Exception("Shift-And needs at most " + MAX_POSITIONS + " positions, regex has " + positions);
+        }
+        this.nullable = glushkov.nullable;
+        this.first = toLong(glushkov.first);
+        this.last = toLong(glushkov.last);
+
+        long dot = 0;
+        for (int p = 0; p < positions; p++) {
+            int symbol = glushkov.symbols[p];
+            if (symbol == Automaton.DOT_SYMBOL) {
+                dot |= 1L << p;
+            } else if (symbol < asciiMask.length) {
+                asciiMask[symbol] |= 1L << p;
+            } else {
+                otherMasks.merge(symbol, 1L << p, (a, b) -> a | b);
+            }
+        }
+        this.dotMask = dot;
+        for (int c = 0; c < asciiMask.length; c++) {
+            asciiMask[c] |= dotMask;
+        }
+        otherMasks.replaceAll((symbol, mask) -> mask | dotMask);
+
+        int chunks = (positions + 7) / 8;
+        this.followTable = new long[chunks][256];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            for (int value = 1; value < 256; value++) {
+                // reuse the entry without the lowest bit, then add the follow set of that bit
+                int lowest = Integer.numberOfTrailingZeros(value);
+                int position = chunk * 8 + lowest;
+                long follow = position < positions ? toLong(glushkov.follow[position]) : 0;
+                followTable[chunk][value] = followTable[chunk][value & (value - 1)] | follow;
+            }
+        }
+    }
+
+    private static long toLong(BitSet set) {
+        long[] words = set.toLongArray();
+        return words.length == 0 ? 0 : words[0];
+    }
+
+    private long maskOf(int c) {
+        if (c < asciiMask.length) {
+            return asciiMask[c];
+        }
+        if (otherMasks.isEmpty()) {
+            return dotMask;
+        }
+        return otherMasks.getOrDefault(c, dotMask);
+    }
+
+    private long step(long d, long mask) {
+        long reachable = first;
+        for (int chunk = 0; d != 0; chunk++, d >>>= 8) {
+            reachable |= followTable[chunk][(int) (d & 0xFF)];
+        }
+        return reachable & mask;
+    }
+
+    @Override
+    public boolean matchLine(String line, boolean debugMode) throws Exception {
+        if (nullable) {
+            return true;
+        }
+        long d = 0;
+        for (int i = 0; i < line.length(); i++) {
+            d = step(d, maskOf(line.charAt(i)));
+            if ((d & last) != 0) {
+                if (debugMode) {
+                    System.out.println("Match found at position " + i);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int findMatchingLine(ByteBuffer buffer, int from, int to) throws Exception {
+        if (!otherMasks.isEmpty() || asciiMask['\n'] != dotMask || asciiMask['\r'] != dotMask) {
+            return LineMatcher.super.findMatchingLine(buffer, from, to);
+        }
+        if (nullable) {
+            return from < to ? from : -1;
+        }
+        long d = 0;
+        for (int i = from; i < to; i++) {
+            int b = buffer.get(i) & 0xFF;
+            if (b == '\n') {
+                d = 0;
+                continue;
+            }
+            if (b >= 0x80 && b < 0xC0) {
+                continue; // continuation byte, its character was read at the lead byte
+            }
+            d = step(d, b < 0x80 ? asciiMask[b] : dotMask);
+            if ((d & last) != 0 && !CompiledDFA.endsLine(buffer, i, to)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return (long) followTable.length * 256 * Long.BYTES + asciiMask.length * Long.BYTES;
+    }
+
+    @Override
+    public void debug() throws Exception {
+        System.out.println("Shift-And for regex: " + regex);
+        System.out.println("Glushkov positions: " + positions);
+        System.out.println("First: " + Long.toBinaryString(first) + " Last: " + Long.toBinaryString(last));
+    }
+}
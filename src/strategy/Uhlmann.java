@@ -1,81 +1,192 @@
 package strategy;
 
+import metrics.Metrics;
 import regex.Automaton;
-import regex.RegEx;
+import regex.CompiledDFA;
+import regex.DFAFormatException;
+import regex.IntDFA;
+import regex.IntNFA;
+import regex.RegExParser;
 import regex.RegExTree;
-import regex.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class Uhlmann implements LineMatcher {
-    private Automaton automaton;
+    private IntNFA nfa;
+    private IntDFA dfa;
     private final String regex;
     private RegExTree regexTree;
+    private CompiledDFA compiledDFA;
+    private int nfaStates;
+    private int dfaStates;
+    private int minimizedStates;
 
     public Uhlmann(String regex) {
         this.regex = regex;
     }
 
+    // regexTree: regex already parsed, buildAutomaton does not parse it again
+    public Uhlmann(String regex, RegExTree regexTree) {
+        this.regex = regex;
+        this.regexTree = regexTree;
+    }
+
     public void buildAutomaton() throws Exception {
-        parseRegex();
+        if (regexTree == null) {
+            parseRegex();
+        }
         buildNFA();
         determinize();
         minimize();
-        writeDotFile();
+        compile();
+    }
+
+    // Like buildAutomaton, but stops when the subset construction reaches more than maxStates states: false
+    // then, and this matcher is not usable
+    public boolean buildAutomaton(int maxStates) throws Exception {
+        if (regexTree == null) {
+            parseRegex();
+        }
+        buildNFA();
+        if (!determinize(maxStates)) {
+            return false;
+        }
+        minimize();
+        compile();
+        return true;
     }
 
     public void parseRegex() throws Exception {
-        this.regexTree = RegEx.parse(regex);
+        parseRegex(false);
     }
+
+    // Throws RegExSyntaxException, with the position of the error, when the regex does not parse
     public void parseRegex(Boolean debug) throws Exception {
-        this.regexTree = RegEx.parse(regex,debug);
+        Metrics.PhaseTimer timer = Metrics.start(Metrics.Phase.PARSE, regex);
+        this.regexTree = new RegExParser(regex).parse();
+        timer.stop(0);
+        if (debug) {
+            System.out.println("  >> Tree result: " + regexTree + ".");
+        }
     }
 
     public void buildNFA() throws Exception {
-        this.automaton = new Automaton();
-        this.automaton.buildFromRegexTree(regexTree);
+        Metrics.PhaseTimer timer = Metrics.start(Metrics.Phase.NFA, regex);
+        // epsilon-free position automaton, a state per symbol occurrence
+        this.nfa = IntNFA.positionAutomaton(regexTree);
+        this.nfaStates = nfa.stateCount;
+        timer.stop(nfaStates);
     }
 
+    // The DFA is unanchored, a match may start anywhere in the line
     public void determinize() {
-        this.automaton = this.automaton.determinize(this.automaton);
+        determinize(Integer.MAX_VALUE);
+    }
+
+    // false when the DFA has more than maxStates states, no DFA is kept then
+    public boolean determinize(int maxStates) {
+        Metrics.PhaseTimer timer = Metrics.start(Metrics.Phase.DETERMINIZE, regex);
+        this.dfa = IntDFA.determinize(nfa, true, maxStates);
+        this.dfaStates = dfa == null ? maxStates : dfa.stateCount;
+        timer.stop(dfaStates);
+        return dfa != null;
     }
 
     public void minimize() {
-        this.automaton = this.automaton.minimizeDFA(this.automaton);
+        Metrics.PhaseTimer timer = Metrics.start(Metrics.Phase.MINIMIZE, regex);
+        this.dfa = dfa.minimize();
+        this.minimizedStates = dfa.stateCount;
+        timer.stop(minimizedStates);
+    }
+
+    public void compile() {
+        Metrics.PhaseTimer timer = Metrics.start(Metrics.Phase.COMPILE, regex);
+        this.compiledDFA = CompiledDFA.fromDFA(dfa);
+        timer.stop(compiledDFA.stateCount);
+    }
+
+    // Saves the compiled DFA, to be mapped back by load instead of being built again
+    public void save(Path file) throws IOException {
+        compiledDFA.save(file, regex);
+    }
+
+    // Maps the DFA saved in file for this regex; when there is none, or the file holds a DFA for another regex or
+    // one it cannot use (damaged, or saved in another format version), builds it and saves it over the file
+    public static Uhlmann loadOrBuild(String regex, Path file) throws Exception {
+        Uhlmann uhlmann = new Uhlmann(regex);
+        // an invalid regex is reported as such, whether or not a file was saved for it
+        uhlmann.parseRegex();
+        if (Files.exists(file)) {
+            try {
+                uhlmann.compiledDFA = CompiledDFA.load(file, regex);
+            } catch (DFAFormatException e) {
+                uhlmann.compiledDFA = null;
+            }
+            if (uhlmann.compiledDFA != null) {
+                return uhlmann;
+            }
+        }
+        uhlmann.buildNFA();
+        uhlmann.determinize();
+        uhlmann.minimize();
+        uhlmann.compile();
+        uhlmann.save(file);
+        return uhlmann;
     }
 
     public void writeDotFile() {
-        Automaton.writeDotFile(this.automaton);
+        Automaton.writeDotFile(dfa.toAutomaton());
     }
 
     @Override
     public boolean matchLine(String line, boolean debugMode) throws Exception {
-        int currentState = automaton.startState;
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            int symbol = (int) c;
-            State state = automaton.transitionTable.get(currentState);
-            int nextState = state.getTransition(symbol);
-            if (nextState == -1) {
-                currentState = automaton.startState;
-            } else {
-                currentState = nextState;
-            }
-            if (automaton.endStates.contains(currentState)) {
-                if (debugMode) {
-                    System.out.println("Match found at position " + i);
-                }
-                return true;
-            }
+        if (compiledDFA.isAccepting(compiledDFA.startState)) {
+            return true;
+        }
+        int position = compiledDFA.find(line);
+        if (position == -1) {
+            return false;
         }
-        return false;
+        if (debugMode) {
+            System.out.println("Match found at position " + position);
+        }
+        return true;
+    }
+
+    @Override
+    public int findMatchingLine(ByteBuffer buffer, int from, int to) throws Exception {
+        if (!compiledDFA.supportsBytes()) {
+            return LineMatcher.super.findMatchingLine(buffer, from, to);
+        }
+        if (compiledDFA.isAccepting(compiledDFA.startState)) {
+            return from < to ? from : -1;
+        }
+        return compiledDFA.find(buffer, from, to);
+    }
+
+    @Override
+    public long memoryBytes() {
+        return compiledDFA.memoryBytes();
     }
 
     @Override
     public void debug() throws Exception {
+        if (dfa == null) {
+            System.out.println("Loaded DFA for regex: " + regex);
+            System.out.println("States: " + compiledDFA.stateCount + ", start state: " + compiledDFA.startState);
+            System.out.println("Mapped table: " + compiledDFA.tableBytes() + " bytes");
+            return;
+        }
+        writeDotFile();
         System.out.println("Parsing regex: " + regex);
-        System.out.println("NFA built. States: " + this.automaton.stateCount);
-        System.out.println("DFA built. States: " + this.automaton.stateCount);
-        System.out.println("Minimized DFA. States: " + this.automaton.stateCount);
-        System.out.println("Start state: " + this.automaton.startState);
-        System.out.println("End states: " + this.automaton.endStates);
+        System.out.println("NFA built. States: " + nfaStates);
+        System.out.println("DFA built. States: " + dfaStates);
+        System.out.println("Minimized DFA. States: " + minimizedStates);
+        System.out.println("Start state: " + dfa.startState);
+        System.out.println("End states: " + dfa.acceptingStates());
+        System.out.println("Compiled table: " + this.compiledDFA.tableBytes() + " bytes");
     }
 }
\ No newline at end of file
@@ -54,7 +54,7 @@ public class UlhmanPerformanceTests {
         DefaultCategoryDataset dataset = new DefaultCategoryDataset();
 
         for (String regex : regexes) {
-            double parseTime = 0, buildNFATime = 0, determinizeTime = 0, minimizeTime = 0;
+            double parseTime = 0, buildNFATime = 0, determinizeTime = 0, minimizeTime = 0, compileTime = 0;
 
             for (int i = 0; i < ITERATIONS; i++) {
                 Uhlmann uhlmann = new Uhlmann(regex);
@@ -78,6 +78,11 @@ public class UlhmanPerformanceTests {
                 uhlmann.minimize();
                 endTime = System.nanoTime();
                 minimizeTime += (endTime - startTime) / 1_000_000.0;
+
+                startTime = System.nanoTime();
+                uhlmann.compile();
+                endTime = System.nanoTime();
+                compileTime += (endTime - startTime) / 1_000_000.0;
             }
 
             // Average the times
@@ -85,12 +90,14 @@ public class UlhmanPerformanceTests {
             buildNFATime /= ITERATIONS;
             determinizeTime /= ITERATIONS;
             minimizeTime /= ITERATIONS;
+            compileTime /= ITERATIONS;
 
             // Add to dataset
             dataset.addValue(parseTime, "Parse", regex);
             dataset.addValue(buildNFATime, "Build NFA", regex);
             dataset.addValue(determinizeTime, "Determinize", regex);
             dataset.addValue(minimizeTime, "Minimize", regex);
+            dataset.addValue(compileTime, "Compile", regex);
         }
 
         createBarChart(dataset, "Automaton Construction Performance", "Regex", "Time (ms)", "automaton_construction.png");
@@ -115,6 +122,7 @@ public class UlhmanPerformanceTests {
             matcher.buildNFA();
             matcher.determinize();
             matcher.minimize();
+            matcher.compile();
 
             for (int i = 0; i < bookCount; i++) {
                 String content = new String(Files.readAllBytes(Paths.get(books[i].getPath())));
@@ -0,0 +1,95 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// What the command line prints and the status it exits with: -c nothing but the count, whatever the engine,
+// -q nothing at all, and an error a single line on standard error with status 2
+class SimplifiedEgrepTest {
+
+    @TempDir
+    Path directory;
+
+    private int status;
+
+    @Test
+    void countPrintsOnlyTheCount() throws Exception {
+        Path file = directory.resolve("text.txt");
+        Files.writeString(file, "Sargon\nSaron\nSon of Sargon\nnothing\n");
+        String count = "3" + System.lineSeparator();
+        for (String algoType : new String[]{"default", "dfa", "lazy", "nfa", "shiftand"}) {
+            assertEquals(count + "|", run("-c", "S(a|g|r)*on", file.toString(), algoType), algoType);
+            assertEquals(0, status);
+        }
+        Path automaton = directory.resolve("sargon.dfa");
+        assertEquals(count + "|", run("-c", "-a", automaton.toString(), "S(a|g|r)*on", file.toString()));
+        assertEquals(count + "|", run("-c", "-a", automaton.toString(), "S(a|g|r)*on", file.toString()));
+    }
+
+    @Test
+    void quietPrintsNothingAndTellsByItsStatus() throws Exception {
+        Path file = directory.resolve("text.txt");
+        Files.writeString(file, "Sargon\nSaron\n");
+        assertEquals("|", run("-q", "Sargon", file.toString()));
+        assertEquals(0, status);
+        assertEquals("|", run("-q", "Akkad", file.toString()));
+        assertEquals(1, status);
+    }
+
+    @Test
+    void optionWithoutItsArgumentIsAUsageError() throws Exception {
+        assertEquals("|Error: missing argument after -e" + System.lineSeparator(), run("-e"));
+        assertEquals(2, status);
+        assertEquals("|Error: missing argument after -a" + System.lineSeparator(), run("-c", "-a"));
+        assertEquals(2, status);
+    }
+
+    @Test
+    void missingFileIsAnErrorOnOneLine() throws Exception {
+        Path missing = directory.resolve("missing.txt");
+        String error = "|Error: " + missing + ": no such file" + System.lineSeparator();
+        for (String[] options : new String[][]{{"-q"}, {"-c"}, {"-l"}, {}, {"-q", "-r"}, {"-r"}}) {
+            List<String> args = new ArrayList<>(List.of(options));
+            args.addAll(List.of("S(a|g|r)*on", missing.toString()));
+            assertEquals(error, run(args.toArray(new String[0])), String.join(" ", options));
+            assertEquals(2, status, String.join(" ", options));
+        }
+    }
+
+    @Test
+    void badPatternIsAnErrorOnOneLine() throws Exception {
+        Path file = directory.resolve("text.txt");
+        Files.writeString(file, "Sargon\n");
+        for (String options : new String[]{"-q", "-c"}) {
+            String printed = run(options, "S(a|g", file.toString());
+            assertTrue(printed.startsWith("|Error: ") && printed.indexOf('\n') == printed.length() - 1, printed);
+            assertTrue(printed.contains("position"), printed);
+            assertEquals(2, status, options);
+        }
+    }
+
+    // standard output, then '|', then standard error; the exit status goes to status
+    private String run(String... args) {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed, true));
+        System.setErr(new PrintStream(errors, true));
+        try {
+            status = SimplifiedEgrep.run(args);
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+        return printed + "|" + errors;
+    }
+}
@@ -0,0 +1,162 @@
+package regex;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import strategy.Uhlmann;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A DFA saved and mapped back matches like the one built, a damaged file is refused when it is loaded, and
+// loadOrBuild builds the DFA again over it
+class CompiledDFATest {
+    private static final String REGEX = "S(a|g|r)*on";
+    private static final String[] LINES = {"Sargon", "Saron", "Son", "Sgn", "the Sargon of Akkad", "Saéon",
+            "Sérgon Sargon", "", "SSSon", "Sargo"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadedDFAMatchesLikeTheBuiltOne() throws Exception {
+        CompiledDFA built = compile(REGEX);
+        Path file = directory.resolve("sargon.dfa");
+        built.save(file, REGEX);
+        CompiledDFA loaded = CompiledDFA.load(file, REGEX);
+
+        assertTrue(loaded.isMapped());
+        assertEquals(built.startState, loaded.startState);
+        assertEquals(built.stateCount, loaded.stateCount);
+        assertEquals(built.tableBytes(), loaded.tableBytes());
+        assertEquals(built.supportsBytes(), loaded.supportsBytes());
+        for (String line : LINES) {
+            assertEquals(built.find(line), loaded.find(line), line);
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            assertEquals(built.find(ByteBuffer.wrap(bytes), 0, bytes.length),
+                    loaded.find(ByteBuffer.wrap(bytes), 0, bytes.length), line);
+        }
+
+        // saved again from the mapped table, the file is the same
+        Path copy = directory.resolve("copy.dfa");
+        loaded.save(copy, REGEX);
+        assertTrue(Arrays.equals(Files.readAllBytes(file), Files.readAllBytes(copy)));
+    }
+
+    @Test
+    void fileSavedForAnotherRegexIsIgnored() throws Exception {
+        Path file = directory.resolve("sargon.dfa");
+        compile(REGEX).save(file, REGEX);
+        assertNull(CompiledDFA.load(file, "Sargon"));
+    }
+
+    @Test
+    void truncatedFileIsRefused() throws Exception {
+        Path file = directory.resolve("sargon.dfa");
+        compile(REGEX).save(file, REGEX);
+        byte[] bytes = Files.readAllBytes(file);
+        for (int length : new int[]{0, 10, 24, 40, bytes.length / 2, bytes.length - 4}) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            IOException e = assertThrows(DFAFormatException.class, () -> CompiledDFA.load(file, REGEX));
+            assertTrue(e.getMessage().contains("truncated") || e.getMessage().contains("not a saved DFA"),
+                    length + " bytes: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void inconsistentHeaderIsRefused() throws Exception {
+        Path file = directory.resolve("sargon.dfa");
+        compile(REGEX).save(file, REGEX);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int stateCount = header.getInt(12);
+
+        assertCorrupt(file, bytes, 8, stateCount, "start state");   // start state out of range
+        assertCorrupt(file, bytes, 8, -1, "start state");
+        assertCorrupt(file, bytes, 12, 0, "start state");           // no state
+        assertCorrupt(file, bytes, 12, stateCount * 1000, "truncated");
+        assertCorrupt(file, bytes, 16, 1 << 20, "truncated");       // stride
+        assertCorrupt(file, bytes, 20, 1 << 30, "regex");           // regex length
+        assertCorrupt(file, bytes, 4, 0, "version");
+        assertCorrupt(file, bytes, 4, 1, "version");                // saved before DFAs were unanchored
+        assertCorrupt(file, bytes, 4, 2, "version");                // saved when '\r' restarted on the byte path
+        assertCorrupt(file, bytes, 0, 0, "not a saved DFA");
+    }
+
+    @Test
+    void tableEntryOutOfTheStatesIsRefused() throws Exception {
+        Path file = directory.resolve("sargon.dfa");
+        compile(REGEX).save(file, REGEX);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int stateCount = header.getInt(12);
+        int entries = stateCount * header.getInt(16);
+        // the table ends the file
+        int table = bytes.length - entries * Integer.BYTES;
+        for (int entry : new int[]{0, entries / 2, entries - 1}) {
+            int offset = table + entry * Integer.BYTES;
+            assertCorrupt(file, bytes, offset, stateCount, "corrupt");
+            assertCorrupt(file, bytes, offset, -1, "corrupt");
+            assertCorrupt(file, bytes, offset, Integer.MIN_VALUE, "corrupt");
+            // any state is a valid entry
+            byte[] redirected = bytes.clone();
+            ByteBuffer.wrap(redirected).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, stateCount - 1);
+            Files.write(file, redirected);
+            assertEquals(stateCount, CompiledDFA.load(file, REGEX).stateCount);
+        }
+    }
+
+    @Test
+    void loadOrBuildRebuildsOverAFileItCannotUse() throws Exception {
+        Path file = directory.resolve("sargon.dfa");
+        compile(REGEX).save(file, REGEX);
+        byte[] bytes = Files.readAllBytes(file);
+        byte[][] unusable = {
+                version(bytes, 1),
+                version(bytes, 2),
+                version(bytes, 4),
+                Arrays.copyOf(bytes, bytes.length / 2),
+                Arrays.copyOf(bytes, bytes.length - 4),
+                "not a DFA at all".getBytes(StandardCharsets.UTF_8),
+                new byte[0],
+        };
+        for (byte[] content : unusable) {
+            Files.write(file, content);
+            Uhlmann uhlmann = Uhlmann.loadOrBuild(REGEX, file);
+            for (String line : LINES) {
+                assertEquals(line.matches(".*" + REGEX + ".*"), uhlmann.matchLine(line, false), line);
+            }
+            // saved over the file, which loads again
+            assertTrue(Arrays.equals(bytes, Files.readAllBytes(file)));
+            assertTrue(CompiledDFA.load(file, REGEX).isMapped());
+        }
+    }
+
+    private static byte[] version(byte[] bytes, int version) {
+        byte[] copy = bytes.clone();
+        ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(4, version);
+        return copy;
+    }
+
+    private static void assertCorrupt(Path file, byte[] bytes, int offset, int value, String message) throws IOException {
+        byte[] corrupt = bytes.clone();
+        ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        Files.write(file, corrupt);
+        IOException e = assertThrows(DFAFormatException.class, () -> CompiledDFA.load(file, REGEX));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+
+    private static CompiledDFA compile(String regex) throws Exception {
+        IntDFA dfa = IntDFA.determinize(IntNFA.positionAutomaton(new RegExParser(regex).parse()), true);
+        return CompiledDFA.fromDFA(dfa.minimize());
+    }
+}
@@ -0,0 +1,85 @@
+package regex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Hopcroft against a naive Moore refinement, which recomputes every block from scratch until nothing changes
+class HopcroftTest {
+
+    @Test
+    void mergesExactlyTheEquivalentStatesOfRandomDFAs() {
+        Random random = new Random(7);
+        for (int run = 0; run < 50_000; run++) {
+            int n = 1 + random.nextInt(12);
+            int k = 1 + random.nextInt(3);
+            int labels = 2 + random.nextInt(2);   // 3 labels stand for the pattern sets of a union DFA
+            int[] delta = new int[n * k];
+            for (int i = 0; i < delta.length; i++) {
+                delta[i] = random.nextInt(n);
+            }
+            int[] label = new int[n];
+            for (int state = 0; state < n; state++) {
+                label[state] = random.nextInt(labels);
+            }
+            assertSamePartition(delta, n, k, label);
+        }
+    }
+
+    // A predecessor inside the splitter block used to reorder the range being walked, and 4, a non-accepting
+    // sink, was merged with 0 and 3
+    @Test
+    void splitterBlockHoldingItsOwnPredecessors() {
+        int[] delta = {2, 5, 1, 2, 4, 0};
+        int[] label = {0, 1, 1, 0, 0, 1};
+        assertSamePartition(delta, 6, 1, label);
+    }
+
+    @Test
+    void minimizedDFAStillFindsTheMatch() throws Exception {
+        IntDFA dfa = IntDFA.determinize(IntNFA.fromRegexTree(new RegExParser("bab(ab|a|aa)a").parse()), true);
+        CompiledDFA compiled = CompiledDFA.fromDFA(dfa.minimize());
+        assertTrue(compiled.find("bbababaaaaababbba") >= 0);
+    }
+
+    private static void assertSamePartition(int[] delta, int n, int k, int[] label) {
+        int[] hopcroft = Hopcroft.minimize(delta, n, k, label);
+        int[] moore = moore(delta, n, k, label);
+        for (int p = 0; p < n; p++) {
+            for (int q = 0; q < n; q++) {
+                int state1 = p;
+                int state2 = q;
+                assertEquals(moore[p] == moore[q], hopcroft[p] == hopcroft[q],
+                        () -> "states " + state1 + " and " + state2 + " of delta=" + Arrays.toString(delta)
+                                + " label=" + Arrays.toString(label));
+            }
+        }
+    }
+
+    private static int[] moore(int[] delta, int n, int k, int[] label) {
+        int[] block = label.clone();
+        while (true) {
+            Map<List<Integer>, Integer> blockOfSignature = new HashMap<>();
+            int[] next = new int[n];
+            for (int state = 0; state < n; state++) {
+                Integer[] signature = new Integer[k + 1];
+                signature[0] = block[state];
+                for (int symbol = 0; symbol < k; symbol++) {
+                    signature[symbol + 1] = block[delta[state * k + symbol]];
+                }
+                next[state] = blockOfSignature.computeIfAbsent(List.of(signature), key -> blockOfSignature.size());
+            }
+            if (blockOfSignature.size() == Arrays.stream(block).distinct().count()) {
+                return next;
+            }
+            block = next;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package regex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Subset construction and minimization on the int table, and the object form built from it for printing
+class IntDFATest {
+
+    @Test
+    void minimizedDFARemembersTheLastCharacters() throws Exception {
+        // (a|b)*a(a|b)^n needs the last n + 1 characters, 2^(n + 1) states
+        for (int n = 0; n <= 10; n++) {
+            IntDFA dfa = determinize("(a|b)*a" + "(a|b)".repeat(n), false).minimize();
+            assertEquals(1 << (n + 1), dfa.stateCount, "n = " + n);
+        }
+    }
+
+    @Test
+    void anchoredDFAHasNoTransitionOutOfThePattern() throws Exception {
+        IntDFA dfa = determinize("ab", false).minimize();
+        assertEquals(IntDFA.NONE, dfa.step(dfa.startState, 'x'));
+        assertEquals(IntDFA.NONE, dfa.step(dfa.startState, 'b'));
+        int afterA = dfa.step(dfa.startState, 'a');
+        assertFalse(dfa.isAccepting(afterA));
+        assertTrue(dfa.isAccepting(dfa.step(afterA, 'b')));
+        assertEquals(3, dfa.stateCount);
+    }
+
+    @Test
+    void unanchoredDFAHasEveryTransition() throws Exception {
+        IntDFA dfa = determinize("ab", true).minimize();
+        int state = dfa.startState;
+        for (char c : "xaab".toCharArray()) {
+            state = dfa.step(state, c);
+            assertTrue(state != IntDFA.NONE);
+        }
+        assertTrue(dfa.isAccepting(state));
+    }
+
+    @Test
+    void objectFormHasTheSameStatesAndTransitions() throws Exception {
+        IntDFA dfa = determinize("S(a|g|r)*on", false).minimize();
+        Automaton automaton = dfa.toAutomaton();
+        assertEquals(dfa.stateCount, automaton.stateCount);
+        assertEquals(dfa.startState, automaton.startState);
+        assertEquals(dfa.acceptingStates(), List.copyOf(automaton.endStates));
+        for (int state = 0; state < dfa.stateCount; state++) {
+            for (char c : "Sagron".toCharArray()) {
+                assertEquals(dfa.step(state, c), automaton.transitionTable.get(state).getTransition(c));
+            }
+        }
+    }
+
+    private static IntDFA determinize(String regex, boolean unanchored) throws Exception {
+        return IntDFA.determinize(IntNFA.positionAutomaton(new RegExParser(regex).parse()), unanchored);
+    }
+}
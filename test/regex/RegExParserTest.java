@@ -0,0 +1,43 @@
+package regex;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Syntax errors are thrown with the position of the offending character, and valid regexes keep the precedence
+// of the original parser
+class RegExParserTest {
+
+    @Test
+    void reportsThePositionOfSyntaxErrors() {
+        assertSyntaxError("", 0, "Empty regex");
+        assertSyntaxError("a(b", 1, "Unclosed '('");
+        assertSyntaxError("ab)", 2, "Unmatched ')'");
+        assertSyntaxError("*a", 0, "Nothing to repeat before '*'");
+        assertSyntaxError("a|*", 2, "Nothing to repeat before '*'");
+        assertSyntaxError("a|", 2, "Expected an expression");
+        assertSyntaxError("|a", 0, "Expected an expression before '|'");
+        assertSyntaxError("a(|b)", 2, "Expected an expression before '|'");
+        assertSyntaxError("()", 1, "Expected an expression before ')'");
+    }
+
+    @Test
+    void starBindsTighterThanConcatenationAndConcatenationThanAlternation() throws Exception {
+        assertEquals("|(.(a,*(b)),c)", new RegExParser("ab*|c").parse().toString());
+        assertEquals(".(.(a,b),c)", new RegExParser("abc").parse().toString());
+        assertEquals("*(*(.(a,.)))", new RegExParser("(a.)**").parse().toString());
+    }
+
+    @Test
+    void parseReturnsNullOnASyntaxError() {
+        assertEquals(null, RegEx.parse("a(b", false));
+    }
+
+    private static void assertSyntaxError(String regex, int position, String message) {
+        RegExSyntaxException e = assertThrows(RegExSyntaxException.class, () -> new RegExParser(regex).parse());
+        assertEquals(regex, e.getRegex());
+        assertEquals(position, e.getPosition(), regex);
+        assertEquals(message + " at position " + position + " in \"" + regex + "\"", e.getMessage());
+    }
+}
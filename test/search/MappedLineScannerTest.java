@@ -0,0 +1,76 @@
+package search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import strategy.LineMatcher;
+import strategy.Matchers;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Matching lines and their numbers as the scanner reports them, against the file split into lines by hand,
+// with windows small enough that lines keep falling across their boundaries
+class MappedLineScannerTest {
+    static final String[] REGEXES = {"Sargon", "S(a|g|r)*on", "a.*t", "on|of", "é", ".", "x*"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reportsTheMatchingLinesWhateverTheWindowSize() throws Exception {
+        Random random = new Random(3);
+        for (int run = 0; run < 20; run++) {
+            String text = Texts.random(random, 200);
+            Path file = directory.resolve("text" + run + ".txt");
+            Files.writeString(file, text);
+            for (String regex : REGEXES) {
+                List<Match> expected = Texts.matches(text, Pattern.compile(regex));
+                LineMatcher matcher = Matchers.create(regex, "default");
+                for (long windowSize : new long[]{Texts.MAX_LINE, Texts.MAX_LINE + 1, 64, 97, 1 << 20}) {
+                    assertEquals(expected, scan(file, matcher, windowSize), regex + " in windows of " + windowSize);
+                }
+            }
+        }
+    }
+
+    @Test
+    void streamReportsTheLinesWithoutTheirTerminator() throws Exception {
+        String text = "Sargon\r\nthe son\n\nSon of Sargon\r\nlast line without newline, Saron";
+        Path file = directory.resolve("text.txt");
+        Files.writeString(file, text);
+        List<Match> expected = List.of(new Match(1, "Sargon"), new Match(4, "Son of Sargon"),
+                new Match(5, "last line without newline, Saron"));
+        try (Stream<Match> matches = MappedLineScanner.stream(file, Matchers.create("S(a|g|r)*on", "default"))) {
+            assertEquals(expected, matches.toList());
+        }
+    }
+
+    @Test
+    void lineLongerThanTheWindowIsRefused() throws Exception {
+        Path file = directory.resolve("long.txt");
+        Files.writeString(file, "a".repeat(100) + "\nb\n");
+        assertThrows(IOException.class, () -> scan(file, Matchers.create("b", "default"), 50));
+    }
+
+    private static List<Match> scan(Path file, LineMatcher matcher, long windowSize) throws Exception {
+        List<Match> matches = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             MappedLineScanner scanner = new MappedLineScanner(file, channel, matcher, 0, channel.size(), windowSize)) {
+            while (scanner.nextMatch()) {
+                matches.add(new Match(scanner.lineNumber(), scanner.line()));
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,73 @@
+package search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import strategy.LineMatcher;
+import strategy.Matchers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Chunks of a few bytes, so that boundaries fall inside, at the start and at the end of matching lines: the
+// merged matches, their line numbers and the count must not depend on where the file was cut
+class ParallelFileSearchTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void matchesAndLineNumbersDoNotDependOnTheChunks() throws Exception {
+        Random random = new Random(4);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int run = 0; run < 10; run++) {
+                String text = Texts.random(random, 300);
+                Path file = directory.resolve("text" + run + ".txt");
+                Files.writeString(file, text);
+                for (String regex : MappedLineScannerTest.REGEXES) {
+                    List<Match> expected = Texts.matches(text, Pattern.compile(regex));
+                    LineMatcher matcher = Matchers.create(regex, "default");
+                    assertEquals(expected, new ParallelFileSearch(matcher, pool).search(file), regex);
+                    for (long chunkSize : new long[]{1, 7, 40, 129, 1000}) {
+                        ParallelFileSearch search = new ParallelFileSearch(matcher, pool, chunkSize);
+                        assertEquals(expected, search.search(file), regex + " in chunks of " + chunkSize);
+                        assertEquals(expected.size(), search.count(file), regex + " counted in chunks of " + chunkSize);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void streamStoppedEarlyReturnsTheFirstMatchesInOrder() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= 1000; i++) {
+            text.append(i % 3 == 0 ? "Sargon " + i : "line " + i).append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        Path file = directory.resolve("numbered.txt");
+        Files.writeString(file, text);
+        ParallelFileSearch search = new ParallelFileSearch(Matchers.create("Sargon", "default"), ForkJoinPool.commonPool(), 64);
+        try (Stream<Match> matches = search.stream(file)) {
+            assertEquals(List.of(new Match(3, "Sargon 3"), new Match(6, "Sargon 6"), new Match(9, "Sargon 9")),
+                    matches.limit(3).toList());
+        }
+    }
+
+    @Test
+    void emptyFileHasNoMatch() throws Exception {
+        Path file = directory.resolve("empty.txt");
+        Files.writeString(file, "");
+        ParallelFileSearch search = new ParallelFileSearch(Matchers.create("x*", "default"), ForkJoinPool.commonPool(), 1);
+        assertEquals(List.of(), search.search(file));
+        assertEquals(0, search.count(file));
+    }
+}
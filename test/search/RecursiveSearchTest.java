@@ -0,0 +1,74 @@
+package search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import strategy.LineMatcher;
+import strategy.Matchers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Every matching line of every file written once, the lines of a file together and in order, whether they fit
+// the per-file buffer or overflow it after a few characters
+class RecursiveSearchTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesTheLinesOfEachFileTogether() throws Exception {
+        Random random = new Random(19);
+        Map<Path, String> texts = new HashMap<>();
+        for (int i = 0; i < 30; i++) {
+            Path file = directory.resolve(i % 3 == 0 ? "sub" : ".").resolve("text" + i + ".txt");
+            Files.createDirectories(file.getParent());
+            texts.put(file.normalize(), Texts.random(random, 50 + random.nextInt(200)));
+            Files.writeString(file.normalize(), texts.get(file.normalize()));
+        }
+        for (String regex : MappedLineScannerTest.REGEXES) {
+            LineMatcher matcher = Matchers.create(regex, "default");
+            for (int fileBuffer : new int[]{1, 100, RecursiveSearch.DEFAULT_FILE_BUFFER}) {
+                ByteArrayOutputStream printed = new ByteArrayOutputStream();
+                PrintStream out = new PrintStream(printed, false, StandardCharsets.UTF_8);
+                new RecursiveSearch(matcher, 4, fileBuffer).search(directory, out,
+                        (file, lineNumber, line) -> file + "|" + lineNumber + "|" + line);
+                out.flush();
+
+                // the output cut back into runs of lines of one file
+                Map<Path, List<Match>> found = new HashMap<>();
+                Path previous = null;
+                for (String line : printed.toString(StandardCharsets.UTF_8).split(System.lineSeparator())) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    String[] fields = line.split("\\|", 3);
+                    Path file = Path.of(fields[0]);
+                    if (!file.equals(previous)) {
+                        assertTrue(!found.containsKey(file), file + " written in two runs for " + regex
+                                + " with a buffer of " + fileBuffer);
+                        found.put(file, new ArrayList<>());
+                        previous = file;
+                    }
+                    found.get(file).add(new Match(Long.parseLong(fields[1]), fields[2]));
+                }
+                for (Map.Entry<Path, String> text : texts.entrySet()) {
+                    List<Match> expected = Texts.matches(text.getValue(), Pattern.compile(regex));
+                    assertEquals(expected, found.getOrDefault(text.getKey(), List.of()),
+                            regex + " in " + text.getKey() + " with a buffer of " + fileBuffer);
+                }
+            }
+        }
+    }
+}
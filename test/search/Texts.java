@@ -0,0 +1,50 @@
+package search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+// Random texts with LF and CRLF line ends, empty lines and two-byte characters, and their matching lines worked
+// out with String.split and java.util.regex, to check the scanners against
+final class Texts {
+    static final int MAX_LINE = 40;     // bytes, line terminator included
+    private static final String[] WORDS = {"Sargon", "Saron", "Son", "of", "the", "at", "é", "Akkad", "x"};
+
+    private Texts() {
+    }
+
+    static String random(Random random, int lines) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            String line = "";
+            for (int words = random.nextInt(5); words > 0; words--) {
+                String next = line + WORDS[random.nextInt(WORDS.length)] + (random.nextBoolean() ? " " : "");
+                if (next.getBytes(StandardCharsets.UTF_8).length > MAX_LINE - 2) {
+                    break;
+                }
+                line = next;
+            }
+            text.append(line);
+            if (i + 1 < lines || random.nextBoolean()) {
+                text.append(random.nextInt(3) == 0 ? "\r\n" : "\n");
+            }
+        }
+        return text.toString();
+    }
+
+    static List<Match> matches(String text, Pattern pattern) {
+        List<Match> matches = new ArrayList<>();
+        String[] lines = text.split("\n", -1);
+        // a final newline ends the last line, it does not start an empty one
+        int count = text.endsWith("\n") ? lines.length - 1 : lines.length;
+        for (int i = 0; i < count; i++) {
+            String line = lines[i].endsWith("\r") ? lines[i].substring(0, lines[i].length() - 1) : lines[i];
+            if (pattern.matcher(line).find()) {
+                matches.add(new Match(i + 1, line));
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,74 @@
+package strategy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// One matcher shared by many virtual threads, each checking it on random lines of its own against
+// java.util.regex, on the string path and on the byte path. At most SCANS lines are scanned at the same time, a
+// semaphore bounding them as RecursiveSearch bounds its open files; the threads wait for it between lines, so
+// that their scans interleave.
+final class Concurrency {
+    static final int TASKS = 200;
+    static final int LINES = 200;   // per task
+    // as many as the pools of PikeVM and LazyDFA hold, so that none of the objects built is dropped
+    static final int SCANS = Runtime.getRuntime().availableProcessors();
+
+    private Concurrency() {
+    }
+
+    // Runs the tasks twice over matcher, which must match like reference, then checks created, the number of
+    // scan objects the matcher built (state sets, caches): pooled, they are never more than the scans running at
+    // once. A set per virtual thread would make TASKS of them, a set per scan 2 * TASKS * LINES.
+    static void assertPooled(LineMatcher matcher, Pattern reference, LongSupplier created) throws Exception {
+        Semaphore scans = new Semaphore(SCANS);
+        assertEquals(0, mismatches(matcher, reference, scans));
+        assertEquals(0, mismatches(matcher, reference, scans));
+        long built = created.getAsLong();
+        assertTrue(built >= 1 && built <= SCANS, built + " built by " + TASKS + " tasks, " + SCANS + " scans at once");
+    }
+
+    // Number of lines on which matcher and reference disagree, over every task
+    private static int mismatches(LineMatcher matcher, Pattern reference, Semaphore scans) throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Integer>> mismatches = new ArrayList<>();
+            for (int task = 0; task < TASKS; task++) {
+                Random random = new Random(task);
+                mismatches.add(executor.submit(() -> {
+                    int count = 0;
+                    for (int i = 0; i < LINES; i++) {
+                        String line = RandomPatterns.line(random, 24);
+                        boolean expected = reference.matcher(line).find();
+                        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                        scans.acquire();
+                        try {
+                            if (expected != matcher.matchLine(line, false)
+                                    || expected != (matcher.findMatchingLine(ByteBuffer.wrap(bytes), 0, bytes.length) != -1)) {
+                                count++;
+                            }
+                        } finally {
+                            scans.release();
+                        }
+                    }
+                    return count;
+                }));
+            }
+            int count = 0;
+            for (Future<Integer> future : mismatches) {
+                count += future.get();
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package strategy;
+
+import org.junit.jupiter.api.Test;
+import regex.RegExParser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The lazy DFA against java.util.regex, with caches small enough to be flushed all the time and with many virtual
+// threads sharing the pooled caches
+class LazyDFAMatcherTest {
+
+    @Test
+    void matchesLikeJavaRegexWhateverTheCacheSize() throws Exception {
+        Random random = new Random(6);
+        for (int run = 0; run < 500; run++) {
+            String regex = RandomPatterns.pattern(random, 4);
+            Pattern reference = Pattern.compile(regex);
+            LazyDFAMatcher matcher = new LazyDFAMatcher(regex, new RegExParser(regex).parse(), 2 + random.nextInt(4));
+            for (int i = 0; i < 30; i++) {
+                String line = RandomPatterns.line(random, 16);
+                boolean expected = reference.matcher(line).find();
+                assertEquals(expected, matcher.matchLine(line, false), regex + " on " + line);
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                assertEquals(expected, matcher.findMatchingLine(ByteBuffer.wrap(bytes), 0, bytes.length) != -1,
+                        regex + " on the bytes of " + line);
+            }
+        }
+    }
+
+    @Test
+    void virtualThreadsShareTheCaches() throws Exception {
+        String regex = "(a|b)*abb(a|b)*c";
+        Pattern reference = Pattern.compile(regex);
+        LazyDFAMatcher matcher = new LazyDFAMatcher(regex, new RegExParser(regex).parse(), 3);
+        Concurrency.assertPooled(matcher, reference, matcher::cachesCreated);
+    }
+}
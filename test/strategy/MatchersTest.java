@@ -0,0 +1,152 @@
+package strategy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import regex.Glushkov;
+import regex.RegExParser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Every engine Matchers can build, prefiltered or not, against java.util.regex on random patterns and lines, on
+// the string path (matchLine) and on the byte path (findMatchingLine over several lines at once). Only '\n' ends a
+// line: a '\r' inside a line is a character that '.' matches, hence DOTALL for the reference, and only the one
+// right before a '\n' is left out of the line.
+class MatchersTest {
+    private static final String[] ALGO_TYPES = {"default", "dfa", "lazy", "nfa", "shiftand", "bmh", "kmp", "aho"};
+    private static final String[] WORDS = {"a", "ab", "ba", "abc", "cab", "bca", "aab", "é", "dé", "cc"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void everyEngineMatchesLikeJavaRegex() throws Exception {
+        Random random = new Random(1);
+        for (int run = 0; run < 300; run++) {
+            String regex = RandomPatterns.pattern(random, 4);
+            assertEnginesAgree(regex, random);
+        }
+    }
+
+    @Test
+    void everyEngineMatchesAlternationsOfLiterals() throws Exception {
+        Random random = new Random(2);
+        for (int run = 0; run < 300; run++) {
+            StringBuilder regex = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+            for (int i = random.nextInt(4); i > 0; i--) {
+                regex.append('|').append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            assertEnginesAgree(regex.toString(), random);
+        }
+    }
+
+    @Test
+    void savedDFAMatchesLikeJavaRegex() throws Exception {
+        Random random = new Random(3);
+        for (int run = 0; run < 100; run++) {
+            String regex = RandomPatterns.pattern(random, 4);
+            Path file = directory.resolve("dfa" + run);
+            Uhlmann.loadOrBuild(regex, file);
+            List<String> lines = lines(random);
+            assertAgrees("loaded dfa", regex, Uhlmann.loadOrBuild(regex, file), lines);
+        }
+    }
+
+    @Test
+    void loneCarriageReturnIsACharacter() throws Exception {
+        for (String algoType : ALGO_TYPES) {
+            if (algoType.equals("bmh") || algoType.equals("kmp") || algoType.equals("aho")) {
+                continue;
+            }
+            LineMatcher matcher = Matchers.create("a.b", algoType);
+            assertEquals(true, matcher.matchLine("a\rb", false), algoType);
+            assertEquals(0, matchingLine(matcher, "a\rb\n"), algoType);
+            assertEquals(1, matchingLine(matcher, "xyz\na\rb\r\n"), algoType);
+            assertEquals(-1, matchingLine(matcher, "a\r\nb\n"), algoType);
+
+            // the '\r' of a CRLF line end, or one ending the text, is not part of the line
+            LineMatcher dot = Matchers.create("b.", algoType);
+            assertEquals(-1, matchingLine(dot, "ab\r\nab\r\n"), algoType);
+            assertEquals(-1, matchingLine(dot, "ab\r"), algoType);
+            assertEquals(1, matchingLine(dot, "ab\nb\r\r\n"), algoType);
+        }
+        assertEquals(true, Matchers.create("a\rb", "kmp").matchLine("a\rb", false));
+    }
+
+    // Index of the line holding the offset findMatchingLine returns for text, or -1
+    private static int matchingLine(LineMatcher matcher, String text) throws Exception {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int offset = matcher.findMatchingLine(ByteBuffer.wrap(bytes), 0, bytes.length);
+        return offset == -1 ? -1 : (int) text.substring(0, offset).chars().filter(c -> c == '\n').count();
+    }
+
+    private void assertEnginesAgree(String regex, Random random) throws Exception {
+        List<String> lines = lines(random);
+        boolean fitsShiftAnd = Glushkov.positionCount(new RegExParser(regex).parse()) <= ShiftAnd.MAX_POSITIONS;
+        for (String algoType : ALGO_TYPES) {
+            if (algoType.equals("shiftand") && !fitsShiftAnd) {
+                continue;
+            }
+            assertAgrees(algoType, regex, Matchers.create(regex, algoType), lines);
+        }
+        // the engines the planner puts behind a prefilter, without it
+        Uhlmann dfa = new Uhlmann(regex);
+        dfa.buildAutomaton();
+        assertAgrees("unfiltered dfa", regex, dfa, lines);
+        assertAgrees("unfiltered lazy", regex, new LazyDFAMatcher(regex), lines);
+        assertAgrees("unfiltered nfa", regex, new PikeVM(regex), lines);
+    }
+
+    private static void assertAgrees(String engine, String regex, LineMatcher matcher, List<String> lines)
+            throws Exception {
+        Pattern reference = Pattern.compile(regex, Pattern.DOTALL);
+        int firstMatch = -1;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            boolean expected = reference.matcher(line).find();
+            assertEquals(expected, matcher.matchLine(line, false), engine + ": " + regex + " on " + line);
+            if (expected && firstMatch == -1) {
+                firstMatch = i;
+            }
+        }
+
+        // all the lines in one buffer, some ending in CRLF: the offset found must lie in the first matching line
+        StringBuilder text = new StringBuilder();
+        List<Integer> lineStarts = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            lineStarts.add(text.toString().getBytes(StandardCharsets.UTF_8).length);
+            text.append(lines.get(i)).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        int offset = matcher.findMatchingLine(ByteBuffer.wrap(bytes), 0, bytes.length);
+        int found = -1;
+        if (offset != -1) {
+            found = 0;
+            while (found + 1 < lineStarts.size() && lineStarts.get(found + 1) <= offset) {
+                found++;
+            }
+        }
+        assertEquals(firstMatch, found, engine + ": " + regex + " over the bytes of " + lines);
+    }
+
+    // some with a '\r' inside, never last: the lines the scanners cut end before a CRLF terminator
+    private static List<String> lines(Random random) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String line = RandomPatterns.line(random, 12);
+            if (!line.isEmpty() && random.nextInt(4) == 0) {
+                int at = random.nextInt(line.length());
+                line = line.substring(0, at) + '\r' + line.substring(at);
+            }
+            lines.add(line);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,53 @@
+package strategy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The pattern ids reported by the union DFA against every pattern run on its own
+class MultiPatternMatcherTest {
+
+    @Test
+    void reportsThePatternsThatMatchOnTheirOwn() throws Exception {
+        Random random = new Random(14);
+        for (int run = 0; run < 1000; run++) {
+            List<String> regexes = new ArrayList<>();
+            for (int i = 1 + random.nextInt(4); i > 0; i--) {
+                regexes.add(RandomPatterns.pattern(random, 4));
+            }
+            MultiPatternMatcher multi = new MultiPatternMatcher(regexes);
+            List<LineMatcher> singles = new ArrayList<>();
+            List<Pattern> references = new ArrayList<>();
+            for (String regex : regexes) {
+                singles.add(new PikeVM(regex));
+                references.add(Pattern.compile(regex));
+            }
+            for (int i = 0; i < 40; i++) {
+                String line = RandomPatterns.line(random, 12);
+                BitSet expected = new BitSet();
+                for (int id = 0; id < regexes.size(); id++) {
+                    boolean matches = references.get(id).matcher(line).find();
+                    assertEquals(matches, singles.get(id).matchLine(line, false), regexes.get(id) + " on " + line);
+                    if (matches) {
+                        expected.set(id);
+                    }
+                }
+                assertEquals(expected, multi.matchingPatterns(line), regexes + " on " + line);
+                assertEquals(!expected.isEmpty(), multi.matchLine(line, false), regexes + " on " + line);
+            }
+        }
+    }
+
+    @Test
+    void reportsNoPatternWhenNoneMatches() throws Exception {
+        MultiPatternMatcher multi = new MultiPatternMatcher(List.of("aab|bbb*abbb", "bbab"));
+        assertEquals(new BitSet(), multi.matchingPatterns("babbb"));
+        assertEquals(false, multi.matchLine("babbb", false), "babbb");
+    }
+}
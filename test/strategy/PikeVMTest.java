@@ -0,0 +1,18 @@
+package strategy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+// One Pike VM shared by many virtual threads, each scan checking its state sets out of the pool, which builds no
+// more of them than scans run at once
+class PikeVMTest {
+
+    @Test
+    void virtualThreadsShareTheStateSets() throws Exception {
+        String regex = "(a|b)*abb(a|b)*c|d.*é";
+        Pattern reference = Pattern.compile(regex);
+        PikeVM matcher = new PikeVM(regex);
+        Concurrency.assertPooled(matcher, reference, matcher::threadsCreated);
+    }
+}
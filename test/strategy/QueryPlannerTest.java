@@ -0,0 +1,80 @@
+package strategy;
+
+import org.junit.jupiter.api.Test;
+import regex.RegExParser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The engine the planner picks for each size of pattern, and the matcher it builds against the NFA simulation
+class QueryPlannerTest {
+    private static final String LETTER = "(a|b|c|d|e|f|g|h|i|j|k|l|m|n|o|p|q|r|s|t|u|v|w|x|y|z)";
+
+    @Test
+    void picksTheEngineForThePattern() throws Exception {
+        assertEquals(QueryPlanner.Engine.LITERAL, QueryPlanner.plan("Sargon").engine());
+        assertEquals(QueryPlanner.Engine.MULTI_LITERAL, QueryPlanner.plan("the|and|of").engine());
+        assertEquals(QueryPlanner.Engine.SHIFT_AND, QueryPlanner.plan("S(a|g|r)*on").engine());
+        assertEquals(QueryPlanner.Engine.DFA, QueryPlanner.plan(LETTER.repeat(3) + "Sargon").engine());
+        assertEquals(QueryPlanner.Engine.LAZY_DFA, QueryPlanner.plan(LETTER.repeat(20)).engine());
+    }
+
+    @Test
+    void patternPastSixtyFourPositionsMatchesLikeTheNFA() throws Exception {
+        String regex = LETTER.repeat(3) + "Sargon";
+        QueryPlanner.Plan plan = QueryPlanner.plan(regex);
+        assertEquals(QueryPlanner.Engine.DFA, plan.engine());
+        assertTrue(plan.positions() > ShiftAnd.MAX_POSITIONS, plan.explain());
+        assertEquals("Sargon", plan.prefilter());
+
+        LineMatcher planned = Matchers.create(regex, "default");
+        LineMatcher nfa = new PikeVM(regex);
+        Pattern reference = Pattern.compile(regex);
+        Random random = new Random(21);
+        String[] words = {"Sargon", "theSargon", "heSargon", "Sargon of", "xyzSargo", "abcSargonabc", "ABCSargon", "é"};
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder line = new StringBuilder();
+            for (int j = random.nextInt(4); j > 0; j--) {
+                line.append(words[random.nextInt(words.length)]);
+                if (random.nextBoolean()) {
+                    line.append(' ');
+                }
+            }
+            boolean expected = reference.matcher(line).find();
+            assertEquals(expected, nfa.matchLine(line.toString(), false), "nfa on " + line);
+            assertEquals(expected, planned.matchLine(line.toString(), false), "planned on " + line);
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            assertEquals(expected, planned.findMatchingLine(ByteBuffer.wrap(bytes), 0, bytes.length) != -1,
+                    "planned on the bytes of " + line);
+        }
+    }
+
+    @Test
+    void dfaPastTheStateBudgetIsPlannedLazily() throws Exception {
+        // 67 positions, but the DFA must remember the last 33 characters: 2^33 states
+        String regex = "(a|b)*a" + "(a|b)".repeat(32);
+        QueryPlanner.Plan plan = QueryPlanner.plan(regex);
+        assertTrue(plan.positions() <= QueryPlanner.MAX_DFA_POSITIONS, plan.explain());
+        assertEquals(QueryPlanner.Engine.LAZY_DFA, plan.engine(), plan.explain());
+
+        LineMatcher planned = plan.build(new RegExParser(regex).parse());
+        Pattern reference = Pattern.compile(regex);
+        Random random = new Random(21);
+        for (int i = 0; i < 500; i++) {
+            StringBuilder line = new StringBuilder();
+            for (int j = 20 + random.nextInt(40); j > 0; j--) {
+                line.append(random.nextInt(8) == 0 ? 'a' : 'b');
+            }
+            boolean expected = reference.matcher(line).find();
+            assertEquals(expected, planned.matchLine(line.toString(), false), "planned on " + line);
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            assertEquals(expected, planned.findMatchingLine(ByteBuffer.wrap(bytes), 0, bytes.length) != -1,
+                    "planned on the bytes of " + line);
+        }
+    }
+}
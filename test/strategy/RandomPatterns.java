@@ -0,0 +1,39 @@
+package strategy;
+
+import java.util.Random;
+
+// Random patterns and lines over a small alphabet, so that matches are frequent and automata have to tell
+// overlapping candidates apart. The syntax generated (literals, '.', '|', '*', parentheses) means the same to
+// java.util.regex, which serves as the reference.
+final class RandomPatterns {
+
+    private RandomPatterns() {
+    }
+
+    static String pattern(Random random, int depth) {
+        switch (random.nextInt(depth <= 0 ? 2 : 6)) {
+            case 0:
+                return String.valueOf("abc.".charAt(random.nextInt(4)));
+            case 1:
+                return String.valueOf("abc".charAt(random.nextInt(3)));
+            case 2:
+                return pattern(random, depth - 1) + pattern(random, depth - 1);
+            case 3:
+                return "(" + pattern(random, depth - 1) + "|" + pattern(random, depth - 1) + ")";
+            case 4:
+                return "(" + pattern(random, depth - 1) + ")*";
+            default:
+                return pattern(random, depth - 1) + pattern(random, depth - 1) + pattern(random, depth - 1);
+        }
+    }
+
+    // Mostly a, b and c, with some é (two UTF-8 bytes) for the byte paths
+    static String line(Random random, int maxLength) {
+        StringBuilder line = new StringBuilder();
+        int length = random.nextInt(maxLength + 1);
+        for (int i = 0; i < length; i++) {
+            line.append("aaabbbcccdé".charAt(random.nextInt(11)));
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package strategy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import regex.RegExSyntaxException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Every engine reports an invalid regex as a RegExSyntaxException, and parses a valid one without printing
+class SyntaxErrorTest {
+    private static final String INVALID = "S(a|g";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void everyEngineThrowsTheSyntaxError() {
+        assertPosition(assertThrows(RegExSyntaxException.class, () -> new PikeVM(INVALID)));
+        assertPosition(assertThrows(RegExSyntaxException.class, () -> new LazyDFAMatcher(INVALID)));
+        assertPosition(assertThrows(RegExSyntaxException.class, () -> new ShiftAnd(INVALID)));
+        assertPosition(assertThrows(RegExSyntaxException.class, () -> new Uhlmann(INVALID).buildAutomaton()));
+        for (String algoType : new String[]{"default", "dfa", "lazy", "nfa", "shiftand", "bmh", "kmp", "aho"}) {
+            assertPosition(assertThrows(RegExSyntaxException.class, () -> Matchers.create(INVALID, algoType)));
+        }
+    }
+
+    @Test
+    void loadOrBuildThrowsTheSyntaxErrorAndSavesNothing() {
+        Path file = directory.resolve("invalid.dfa");
+        assertPosition(assertThrows(RegExSyntaxException.class, () -> Uhlmann.loadOrBuild(INVALID, file)));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void enginesParseWithoutPrinting() throws Exception {
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed, true));
+        try {
+            new PikeVM("S(a|g|r)*on");
+            new LazyDFAMatcher("S(a|g|r)*on");
+            new ShiftAnd("S(a|g|r)*on");
+            new Uhlmann("S(a|g|r)*on").buildAutomaton();
+            Uhlmann.loadOrBuild("S(a|g|r)*on", directory.resolve("sargon.dfa"));
+        } finally {
+            System.setOut(out);
+        }
+        assertEquals("", printed.toString());
+    }
+
+    private static void assertPosition(RegExSyntaxException e) {
+        assertEquals(INVALID, e.getRegex());
+        assertEquals(1, e.getPosition());
+    }
+}